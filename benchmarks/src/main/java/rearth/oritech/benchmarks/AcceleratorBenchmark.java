@@ -0,0 +1,36 @@
+package rearth.oritech.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Search of the next gate of a particle, with the given distance between the gates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class AcceleratorBenchmark {
+    
+    @Param({"2", "5", "10"})
+    public int distance;
+    
+    @Param({"straight", "diagonal"})
+    public String direction;
+    
+    private LongSupplier workload;
+    
+    @Setup(Level.Trial)
+    public void create() {
+        workload = GameEnvironment.createWorkload("AcceleratorGateWorkload", distance, direction);
+    }
+    
+    @Benchmark
+    public long findNextGate() {
+        return workload.getAsLong();
+    }
+}
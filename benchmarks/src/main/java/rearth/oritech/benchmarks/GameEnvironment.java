@@ -0,0 +1,66 @@
+package rearth.oritech.benchmarks;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.launch.knot.Knot;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Starts the game in the benchmark fork, the same way the Fabric unit test support does: the loader is initialized
+ * without launching the server, so mixins, access wideners and the mod registries are set up, but no world is loaded.
+ * <p>
+ * The workloads are loaded by the game class loader. The benchmarks only see them through java interfaces, as their
+ * own classes are loaded by the application class loader.
+ */
+public final class GameEnvironment {
+    
+    private static final String WORKLOAD_PACKAGE = "rearth.oritech.benchmarks.workload.";
+    
+    private static ClassLoader gameClassLoader;
+    
+    /**
+     * Creates a workload in the game class loader. The workload class needs a constructor taking the size and variant.
+     *
+     * @param name    simple class name of the workload
+     * @param size    size of the workload, e.g. the amount of pipes
+     * @param variant variant of the workload, may be ignored
+     * @return the workload. Each call runs one operation. Workloads that change their state also implement
+     * {@link Runnable}, which resets that state.
+     */
+    public static LongSupplier createWorkload(String name, int size, String variant) {
+        try {
+            var workloadClass = Class.forName(WORKLOAD_PACKAGE + name, true, getGameClassLoader());
+            return (LongSupplier) workloadClass.getConstructor(int.class, String.class).newInstance(size, variant);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create workload " + name, e);
+        }
+    }
+    
+    private static synchronized ClassLoader getGameClassLoader() throws ReflectiveOperationException {
+        if (gameClassLoader != null) return gameClassLoader;
+        
+        System.setProperty("fabric.unitTest", "true");
+        
+        // forks only get the jvm arguments of the run config, so the properties from the dev launch config need to be set again
+        if (System.getProperty("fabric.dli.config") != null) {
+            System.setProperty("fabric.dli.main", GameEnvironment.class.getName());
+            Class.forName("net.fabricmc.devlaunchinjector.Main").getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        } else {
+            main(new String[0]);
+        }
+        
+        Class.forName(WORKLOAD_PACKAGE + "GameBootstrap", true, gameClassLoader).getMethod("initialize").invoke(null);
+        return gameClassLoader;
+    }
+    
+    // entry point for the dev launch injector
+    public static void main(String[] args) {
+        var thread = Thread.currentThread();
+        var contextClassLoader = thread.getContextClassLoader();
+        try {
+            gameClassLoader = new Knot(EnvType.SERVER).init(args);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package rearth.oritech.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class PipeNetworkBenchmark {
+    
+    @State(Scope.Thread)
+    public static class FloodFill {
+        
+        @Param({"512", "4096", "32768"})
+        public int pipes;
+        
+        private LongSupplier workload;
+        
+        @Setup(Level.Trial)
+        public void create() {
+            workload = GameEnvironment.createWorkload("PipeFloodFillWorkload", pipes, "");
+        }
+        
+        // each flood fill restores the network, so the next one needs unlinked pipes again
+        @Setup(Level.Invocation)
+        public void reset() {
+            ((Runnable) workload).run();
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Rebuild {
+        
+        @Param({"512", "4096", "32768"})
+        public int pipes;
+        
+        private LongSupplier workload;
+        
+        @Setup(Level.Trial)
+        public void create() {
+            workload = GameEnvironment.createWorkload("PipeRebuildWorkload", pipes, "");
+        }
+        
+        @Setup(Level.Invocation)
+        public void reset() {
+            ((Runnable) workload).run();
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class NbtRoundTrip {
+        
+        @Param({"512", "4096", "32768"})
+        public int pipes;
+        
+        @Param({"saved", "unsaved"})
+        public String networks;
+        
+        private LongSupplier workload;
+        
+        @Setup(Level.Trial)
+        public void create() {
+            workload = GameEnvironment.createWorkload("PipeNbtWorkload", pipes, networks);
+        }
+    }
+    
+    // restores a network that was loaded without its saved network data
+    @Benchmark
+    public long floodFill(FloodFill state) {
+        return state.workload.getAsLong();
+    }
+    
+    // adds all pipes of a network one by one, like placing them
+    @Benchmark
+    public long rebuild(Rebuild state) {
+        return state.workload.getAsLong();
+    }
+    
+    @Benchmark
+    public long nbtRoundTrip(NbtRoundTrip state) {
+        return state.workload.getAsLong();
+    }
+}
@@ -0,0 +1,40 @@
+package rearth.oritech.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * One tick of a running reactor with a square interior of the given width. The layout keeps the reactor stable, so
+ * the heat simulation runs without triggering a meltdown.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class ReactorBenchmark {
+    
+    @Param({"3", "7", "15"})
+    public int width;
+    
+    private LongSupplier workload;
+    
+    @Setup(Level.Trial)
+    public void create() {
+        workload = GameEnvironment.createWorkload("ReactorTickWorkload", width, "");
+    }
+    
+    // starts each iteration with a cold reactor
+    @Setup(Level.Iteration)
+    public void reset() {
+        ((Runnable) workload).run();
+    }
+    
+    @Benchmark
+    public long tick() {
+        return workload.getAsLong();
+    }
+}
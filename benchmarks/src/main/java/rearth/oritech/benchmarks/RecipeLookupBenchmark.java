@@ -0,0 +1,37 @@
+package rearth.oritech.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Recipe lookup of a machine, with the recipe index or with a linear search of the recipe manager. The input matches
+ * the last recipe, which is the worst case for the linear search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class RecipeLookupBenchmark {
+    
+    @Param({"16", "256", "1024"})
+    public int recipes;
+    
+    @Param({"index", "manager"})
+    public String lookup;
+    
+    private LongSupplier workload;
+    
+    @Setup(Level.Trial)
+    public void create() {
+        workload = GameEnvironment.createWorkload("RecipeLookupWorkload", recipes, lookup);
+    }
+    
+    @Benchmark
+    public long firstMatch() {
+        return workload.getAsLong();
+    }
+}
@@ -0,0 +1,34 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+import rearth.oritech.block.entity.accelerator.AcceleratorParticleLogic;
+import rearth.oritech.init.BlockContent;
+
+/**
+ * Searches the next gate from a motor, with a sensor at the given distance and only air in between. The particle is
+ * just fast enough to reach the sensor.
+ */
+public final class AcceleratorGateWorkload extends BenchmarkWorkload {
+    
+    private final AcceleratorParticleLogic logic;
+    private final Vec3i direction;
+    private final float speed;
+    
+    public AcceleratorGateWorkload(int size, String variant) {
+        var world = new StubWorld();
+        direction = variant.equals("diagonal") ? new Vec3i(1, 0, 1) : new Vec3i(1, 0, 0);
+        speed = 4f * size * size;   // max gate distance is sqrt(speed) / 2
+        
+        world.setBlockState(BlockPos.ORIGIN, BlockContent.ACCELERATOR_MOTOR.getDefaultState());
+        world.setBlockState(BlockPos.ORIGIN.add(direction.multiply(size)), BlockContent.ACCELERATOR_SENSOR.getDefaultState());
+        
+        logic = new AcceleratorParticleLogic(BlockPos.ORIGIN, world.get(), null);
+    }
+    
+    @Override
+    public long getAsLong() {
+        var gate = logic.findNextGate(BlockPos.ORIGIN, direction, speed);
+        return gate == null ? -1 : gate.asLong();
+    }
+}
@@ -0,0 +1,66 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.fabricmc.fabric.api.transfer.v1.context.ContainerItemContext;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.component.ComponentType;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
+import rearth.oritech.util.energy.BlockEnergyApi;
+import rearth.oritech.util.energy.EnergyApi;
+import rearth.oritech.util.energy.ItemEnergyApi;
+import team.reborn.energy.api.EnergyStorage;
+
+import java.util.function.Supplier;
+
+// only finds the storages of oritech blocks and items, without going through the api lookups of the platform
+public class BenchmarkEnergyApi implements BlockEnergyApi, ItemEnergyApi {
+    
+    @Override
+    public void registerBlockEntity(Supplier<BlockEntityType<?>> typeSupplier) {
+    }
+    
+    @Override
+    public void registerForItem(Supplier<Item> itemSupplier) {
+    }
+    
+    @Override
+    public ComponentType<Long> getEnergyComponent() {
+        return EnergyStorage.ENERGY_COMPONENT;
+    }
+    
+    @Override
+    public EnergyApi.EnergyContainer find(ItemStack stack, ContainerItemContext context) {
+        if (stack.getItem() instanceof EnergyApi.ItemProvider provider) return provider.getStorage(stack);
+        return null;
+    }
+    
+    @Override
+    public EnergyApi.EnergyContainer find(World world, BlockPos pos, @Nullable BlockState state, @Nullable BlockEntity entity, @Nullable Direction direction) {
+        if (entity == null) entity = world.getBlockEntity(pos);
+        if (entity instanceof EnergyApi.BlockProvider provider) return provider.getStorage(direction);
+        return null;
+    }
+    
+    @Override
+    public EnergyApi.EnergyContainer find(World world, BlockPos pos, @Nullable Direction direction) {
+        return find(world, pos, null, null, direction);
+    }
+    
+    @Override
+    public EnergyApi.BlockLookup createLookup(ServerWorld world, BlockPos pos) {
+        var target = pos.toImmutable();
+        return direction -> find(world, target, direction);
+    }
+    
+    @Override
+    public EnergyApi.TransferBatch openBatch() {
+        return EnergyApi.TransferBatch.NONE;
+    }
+}
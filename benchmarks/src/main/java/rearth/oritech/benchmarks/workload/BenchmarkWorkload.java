@@ -0,0 +1,19 @@
+package rearth.oritech.benchmarks.workload;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Base class of the workloads. Workloads are created by the game class loader, so the benchmarks use them through
+ * the java interfaces only: {@link #getAsLong()} runs one operation, and returns a value depending on its result.
+ * {@link #run()} resets the state changed by the operations.
+ */
+public abstract class BenchmarkWorkload implements LongSupplier, Runnable {
+    
+    @Override
+    public void run() {
+        reset();
+    }
+    
+    protected void reset() {
+    }
+}
@@ -0,0 +1,21 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.fabricmc.api.ModInitializer;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+
+public final class GameBootstrap {
+    
+    private static boolean initialized;
+    
+    // sets up the vanilla registries, and runs the mod initializers like a server start would
+    public static synchronized void initialize() {
+        if (initialized) return;
+        initialized = true;
+        
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        FabricLoader.getInstance().getEntrypoints("main", ModInitializer.class).forEach(ModInitializer::onInitialize);
+    }
+}
@@ -0,0 +1,19 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.fabricmc.api.ModInitializer;
+import rearth.oritech.Oritech;
+import rearth.oritech.util.energy.EnergyApi;
+
+public final class OritechBenchmarkMod implements ModInitializer {
+    @Override
+    public void onInitialize() {
+        
+        var energyApiInstance = new BenchmarkEnergyApi();
+        EnergyApi.BLOCK = energyApiInstance;
+        EnergyApi.ITEM = energyApiInstance;
+        
+        // Run our common setup.
+        Oritech.runAllRegistries();
+        Oritech.initialize();
+    }
+}
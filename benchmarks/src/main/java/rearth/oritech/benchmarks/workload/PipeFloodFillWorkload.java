@@ -0,0 +1,31 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.util.math.BlockPos;
+import rearth.oritech.block.entity.pipes.GenericPipeInterfaceEntity;
+
+public final class PipeFloodFillWorkload extends BenchmarkWorkload {
+    
+    private final StubWorld world = new StubWorld();
+    private final NbtCompound savedData = new NbtCompound();
+    private GenericPipeInterfaceEntity.PipeNetworkData data;
+    
+    public PipeFloodFillWorkload(int size, String variant) {
+        var pipes = PipeLayout.fillCube(world, PipeLayout.getConnectedPipe(), size);
+        
+        // saved without networks, so they are restored on first use
+        savedData.putInt("version", 2);
+        savedData.putLongArray("pipes", pipes.toLongArray());
+        reset();
+    }
+    
+    @Override
+    protected void reset() {
+        data = GenericPipeInterfaceEntity.PipeNetworkData.fromNbt(savedData, null);
+    }
+    
+    @Override
+    public long getAsLong() {
+        return GenericPipeInterfaceEntity.findNetworkId(world.get(), BlockPos.ORIGIN, data);
+    }
+}
@@ -0,0 +1,37 @@
+package rearth.oritech.benchmarks.workload;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import rearth.oritech.block.blocks.pipes.GenericPipeBlock;
+import rearth.oritech.init.BlockContent;
+
+final class PipeLayout {
+    
+    private PipeLayout() {
+    }
+    
+    // an item pipe connecting in all directions
+    static BlockState getConnectedPipe() {
+        var block = (GenericPipeBlock) BlockContent.ITEM_PIPE;
+        var state = block.getDefaultState();
+        for (var direction : Direction.values())
+            state = state.with(block.directionToProperty(direction), GenericPipeBlock.CONNECTION);
+        
+        return state;
+    }
+    
+    // fills a cube with about the given amount of pipes, which all form one network
+    static LongArrayList fillCube(StubWorld world, BlockState pipe, int count) {
+        var side = Math.max(1, (int) Math.round(Math.cbrt(count)));
+        var pipes = new LongArrayList(side * side * side);
+        
+        for (var pos : BlockPos.iterate(0, 0, 0, side - 1, side - 1, side - 1)) {
+            world.setBlockState(pos.toImmutable(), pipe);
+            pipes.add(pos.asLong());
+        }
+        
+        return pipes;
+    }
+}
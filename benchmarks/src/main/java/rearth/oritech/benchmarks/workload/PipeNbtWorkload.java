@@ -0,0 +1,40 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.util.math.BlockPos;
+import rearth.oritech.block.entity.pipes.GenericPipeInterfaceEntity;
+
+/**
+ * Saves and loads the data of one pipe network. With the "unsaved" variant, the networks are removed from the saved
+ * data, like with the savePipeNetworks option disabled.
+ */
+public final class PipeNbtWorkload extends BenchmarkWorkload {
+    
+    private final GenericPipeInterfaceEntity.PipeNetworkData data;
+    private final boolean keepNetworks;
+    
+    public PipeNbtWorkload(int size, String variant) {
+        var world = new StubWorld();
+        var pipe = PipeLayout.getConnectedPipe();
+        var pipes = PipeLayout.fillCube(world, pipe, size);
+        
+        data = new GenericPipeInterfaceEntity.PipeNetworkData();
+        for (var iterator = pipes.iterator(); iterator.hasNext(); )
+            GenericPipeInterfaceEntity.addNode(world.get(), BlockPos.fromLong(iterator.nextLong()), false, pipe, data);
+        
+        keepNetworks = !variant.equals("unsaved");
+    }
+    
+    @Override
+    public long getAsLong() {
+        var nbt = data.writeNbt(new NbtCompound(), null);
+        if (!keepNetworks) {
+            nbt.remove("networkIds");
+            nbt.remove("networkSizes");
+            nbt.remove("networkNodes");
+        }
+        
+        var loaded = GenericPipeInterfaceEntity.PipeNetworkData.fromNbt(nbt, null);
+        return loaded.getNetworkId(BlockPos.ORIGIN);
+    }
+}
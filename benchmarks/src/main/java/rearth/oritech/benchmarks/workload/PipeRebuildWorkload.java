@@ -0,0 +1,32 @@
+package rearth.oritech.benchmarks.workload;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import rearth.oritech.block.entity.pipes.GenericPipeInterfaceEntity;
+
+public final class PipeRebuildWorkload extends BenchmarkWorkload {
+    
+    private final StubWorld world = new StubWorld();
+    private final BlockState pipe = PipeLayout.getConnectedPipe();
+    private final LongArrayList pipes;
+    private GenericPipeInterfaceEntity.PipeNetworkData data;
+    
+    public PipeRebuildWorkload(int size, String variant) {
+        pipes = PipeLayout.fillCube(world, pipe, size);
+        reset();
+    }
+    
+    @Override
+    protected void reset() {
+        data = new GenericPipeInterfaceEntity.PipeNetworkData();
+    }
+    
+    @Override
+    public long getAsLong() {
+        for (var iterator = pipes.iterator(); iterator.hasNext(); )
+            GenericPipeInterfaceEntity.addNode(world.get(), BlockPos.fromLong(iterator.nextLong()), false, pipe, data);
+        
+        return data.getNetworkId(BlockPos.ORIGIN);
+    }
+}
@@ -0,0 +1,70 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
+import rearth.oritech.block.entity.reactor.ReactorFuelPortEntity;
+import rearth.oritech.init.BlockContent;
+
+/**
+ * A reactor with a square interior of the given width and two layers. Single rods are placed on every second row and
+ * column, with vents on all other positions. Every rod has at least one vent next to it that keeps it cool, so the
+ * reactor stays stable however long it runs. The fuel ports never run out of fuel.
+ */
+public final class ReactorTickWorkload extends BenchmarkWorkload {
+    
+    private static final int HEIGHT = 2;
+    
+    private final StubWorld world = new StubWorld();
+    private final BlockPos controllerPos = new BlockPos(0, 1, 1);
+    private final BlockState controllerState = BlockContent.REACTOR_CONTROLLER.getDefaultState();
+    private ReactorControllerBlockEntity controller;
+    
+    public ReactorTickWorkload(int size, String variant) {
+        var max = new BlockPos(size + 1, HEIGHT + 1, size + 1);
+        
+        for (var pos : BlockPos.iterate(BlockPos.ORIGIN, max)) {
+            var isWall = pos.getX() == 0 || pos.getY() == 0 || pos.getZ() == 0 || pos.getX() == max.getX() || pos.getY() == max.getY() || pos.getZ() == max.getZ();
+            if (isWall) world.setBlockState(pos.toImmutable(), BlockContent.REACTOR_WALL.getDefaultState());
+        }
+        world.setBlockState(controllerPos, controllerState);
+        
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                var isRod = x % 2 == 0 && z % 2 == 0;
+                var component = isRod ? BlockContent.REACTOR_ROD : BlockContent.REACTOR_VENT;
+                for (int y = 1; y <= HEIGHT; y++)
+                    world.setBlockState(new BlockPos(x + 1, y, z + 1), component.getDefaultState());
+                
+                if (!isRod) continue;
+                var portPos = new BlockPos(x + 1, HEIGHT + 1, z + 1);
+                var portState = BlockContent.REACTOR_FUEL_PORT.getDefaultState();
+                world.setBlockState(portPos, portState);
+                
+                var port = new ReactorFuelPortEntity(portPos, portState);
+                port.availableFuel = Integer.MAX_VALUE;
+                world.addBlockEntity(port);
+            }
+        }
+        
+        reset();
+    }
+    
+    @Override
+    protected void reset() {
+        world.time = 0;
+        controller = new ReactorControllerBlockEntity(controllerPos, controllerState);
+        controller.setWorld(world.get());
+        controller.init(null);
+        
+        if (!controller.active)
+            throw new IllegalStateException("Benchmark reactor is not valid");
+    }
+    
+    @Override
+    public long getAsLong() {
+        world.time++;
+        controller.tick(world.get(), controllerPos, controllerState, controller);
+        return controller.energyStorage.getAmount();
+    }
+}
@@ -0,0 +1,56 @@
+package rearth.oritech.benchmarks.workload;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.recipe.RecipeEntry;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.recipe.input.RecipeInput;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import rearth.oritech.Oritech;
+import rearth.oritech.init.recipes.OritechRecipe;
+import rearth.oritech.init.recipes.RecipeContent;
+import rearth.oritech.util.SimpleCraftingInventory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the pulverizer recipe for an input, either with the recipe index used by the machines ("index"), or with the
+ * linear search of the recipe manager ("manager"). Each recipe uses a different vanilla item as input.
+ */
+public final class RecipeLookupWorkload extends BenchmarkWorkload {
+    
+    private final StubWorld world = new StubWorld();
+    private final RecipeManager manager = new RecipeManager(DynamicRegistryManager.EMPTY);
+    private final RecipeInput input;
+    private final boolean useIndex;
+    
+    public RecipeLookupWorkload(int size, String variant) {
+        var items = Registries.ITEM.stream().filter(item -> item != Items.AIR).limit(size).toList();
+        
+        var recipes = new ArrayList<RecipeEntry<?>>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            var recipe = new OritechRecipe(20, List.of(Ingredient.ofItems(items.get(i))), List.of(new ItemStack(Items.IRON_INGOT)), RecipeContent.PULVERIZER, null, null);
+            recipes.add(new RecipeEntry<>(Oritech.id("benchmark/recipe_" + i), recipe));
+        }
+        
+        manager.setRecipes(recipes);
+        world.setRecipeManager(manager);
+        
+        // the last recipe is the worst case for the linear search
+        input = new SimpleCraftingInventory(new ItemStack(items.get(items.size() - 1)));
+        useIndex = variant.equals("index");
+    }
+    
+    @Override
+    public long getAsLong() {
+        var match = useIndex
+                      ? RecipeContent.PULVERIZER.getIndex(manager).getFirstMatch(input, world.get())
+                      : manager.getFirstMatch(RecipeContent.PULVERIZER, input, world.get());
+        
+        return match.map(entry -> (long) entry.value().getTime()).orElse(-1L);
+    }
+}
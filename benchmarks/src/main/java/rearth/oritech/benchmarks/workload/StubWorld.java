@@ -0,0 +1,70 @@
+package rearth.oritech.benchmarks.workload;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.recipe.RecipeManager;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * A server world without a server. Block states and block entities are kept in maps, and all other methods return
+ * default values (null, 0, false or empty). Code that needs other parts of the world has to be added here.
+ */
+public final class StubWorld implements Answer<Object> {
+    
+    private final Long2ObjectOpenHashMap<BlockState> states = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<BlockEntity> blockEntities = new Long2ObjectOpenHashMap<>();
+    private final ServerWorld world;
+    private RecipeManager recipeManager;
+    public long time;
+    
+    public StubWorld() {
+        states.defaultReturnValue(Blocks.AIR.getDefaultState());
+        world = Mockito.mock(ServerWorld.class, Mockito.withSettings().stubOnly().defaultAnswer(this));
+    }
+    
+    public ServerWorld get() {
+        return world;
+    }
+    
+    public BlockState getBlockState(BlockPos pos) {
+        return states.get(pos.asLong());
+    }
+    
+    public void setBlockState(BlockPos pos, BlockState state) {
+        states.put(pos.asLong(), state);
+    }
+    
+    public void addBlockEntity(BlockEntity entity) {
+        blockEntities.put(entity.getPos().asLong(), entity);
+        entity.setWorld(world);
+    }
+    
+    public void setRecipeManager(RecipeManager recipeManager) {
+        this.recipeManager = recipeManager;
+    }
+    
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+        var arguments = invocation.getArguments();
+        return switch (invocation.getMethod().getName()) {
+            case "getBlockState" -> getBlockState((BlockPos) arguments[0]);
+            case "getBlockEntity" -> arguments.length == 1 ? blockEntities.get(((BlockPos) arguments[0]).asLong()) : Answers.RETURNS_DEFAULTS.answer(invocation);
+            case "setBlockState" -> {
+                setBlockState((BlockPos) arguments[0], (BlockState) arguments[1]);
+                yield true;
+            }
+            case "getTime" -> time;
+            case "getRecipeManager" -> recipeManager;
+            case "getRegistryKey" -> World.OVERWORLD;
+            default -> Answers.RETURNS_DEFAULTS.answer(invocation);
+        };
+    }
+}
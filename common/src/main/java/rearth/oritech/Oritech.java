@@ -4,6 +4,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.registry.RegistryKeys;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.Identifier;
@@ -13,17 +14,21 @@ import rearth.oritech.block.blocks.pipes.energy.EnergyPipeBlock;
 import rearth.oritech.block.blocks.pipes.energy.SuperConductorBlock;
 import rearth.oritech.block.blocks.pipes.fluid.FluidPipeBlock;
 import rearth.oritech.block.blocks.pipes.item.ItemPipeBlock;
+import rearth.oritech.block.entity.accelerator.AcceleratorGateGraph;
 import rearth.oritech.block.entity.accelerator.AcceleratorParticleLogic;
 import rearth.oritech.block.entity.pipes.GenericPipeInterfaceEntity;
+import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
 import rearth.oritech.client.init.ModScreens;
 import rearth.oritech.client.init.ParticleContent;
 import rearth.oritech.init.*;
 import rearth.oritech.init.recipes.RecipeContent;
 import rearth.oritech.init.world.FeatureContent;
+import rearth.oritech.network.MachineSyncQueue;
 import rearth.oritech.network.NetworkContent;
 import rearth.oritech.util.ArchitecturyBlockRegistryContainer;
 import rearth.oritech.util.ArchitecturyRecipeRegistryContainer;
 import rearth.oritech.util.ArchitecturyRegistryContainer;
+import rearth.oritech.util.ScreenViewers;
 
 public final class Oritech {
     
@@ -47,8 +52,21 @@ public final class Oritech {
         // for pipe data
         ServerLifecycleEvents.SERVER_STARTED.register(Oritech::onServerStarted);
         
+        // per world caches, these would otherwise be kept for the next save
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            ReactorControllerBlockEntity.onServerStopped();
+            AcceleratorGateGraph.onServerStopped();
+            ScreenViewers.onServerStopped();
+        });
+        
+        // open screens of players that left
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> ScreenViewers.onDisconnected(handler.getPlayer()));
+        
         // for particle collisions
         ServerTickEvents.END_SERVER_TICK.register(elem -> AcceleratorParticleLogic.onTickEnd());
+        
+        // batched machine updates
+        ServerTickEvents.END_SERVER_TICK.register(elem -> MachineSyncQueue.flush());
     }
     
     public static void runAllRegistries() {
@@ -96,6 +96,13 @@ public abstract class FrameInteractionBlock extends HorizontalFacingBlock implem
         };
     }
     
+    @Override
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock, BlockPos sourcePos, boolean notify) {
+        super.neighborUpdate(state, world, pos, sourceBlock, sourcePos, notify);
+        if (!world.isClient && world.getBlockEntity(pos) instanceof FrameInteractionBlockEntity entity)
+            entity.wakeUp();
+    }
+    
     @Override
     public BlockState onBreak(World world, BlockPos pos, BlockState state, PlayerEntity player) {
         
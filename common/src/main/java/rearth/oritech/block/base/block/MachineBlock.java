@@ -72,6 +72,13 @@ public abstract class MachineBlock extends HorizontalFacingBlock implements Bloc
         }
     }
     
+    @Override
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock, BlockPos sourcePos, boolean notify) {
+        super.neighborUpdate(state, world, pos, sourceBlock, sourcePos, notify);
+        if (!world.isClient && world.getBlockEntity(pos) instanceof MachineBlockEntity entity)
+            entity.wakeUp();
+    }
+    
     @Override
     public BlockState onBreak(World world, BlockPos pos, BlockState state, PlayerEntity player) {
         
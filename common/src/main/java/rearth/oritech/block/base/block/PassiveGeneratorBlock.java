@@ -6,14 +6,23 @@ import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityTicker;
 import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
+import rearth.oritech.block.base.entity.PassiveGeneratorBlockEntity;
 
 public abstract class PassiveGeneratorBlock extends Block implements BlockEntityProvider {
     public PassiveGeneratorBlock(Settings settings) {
         super(settings);
     }
     
+    @Override
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock, BlockPos sourcePos, boolean notify) {
+        super.neighborUpdate(state, world, pos, sourceBlock, sourcePos, notify);
+        if (!world.isClient && world.getBlockEntity(pos) instanceof PassiveGeneratorBlockEntity entity)
+            entity.onNeighborUpdate();
+    }
+    
     @Nullable
     @Override
     public <T extends BlockEntity> BlockEntityTicker<T> getTicker(World world, BlockState state, BlockEntityType<T> type) {
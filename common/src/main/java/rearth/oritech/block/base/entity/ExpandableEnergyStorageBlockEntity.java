@@ -17,6 +17,7 @@ import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.screen.ScreenHandlerType;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.state.property.Property;
 import net.minecraft.text.Text;
 import net.minecraft.util.Pair;
@@ -28,12 +29,12 @@ import org.jetbrains.annotations.Nullable;
 import rearth.oritech.Oritech;
 import rearth.oritech.block.blocks.storage.SmallStorageBlock;
 import rearth.oritech.client.init.ModScreens;
-import rearth.oritech.client.ui.BasicMachineScreenHandler;
 import rearth.oritech.client.ui.UpgradableMachineScreenHandler;
 import rearth.oritech.init.ItemContent;
 import rearth.oritech.network.NetworkContent;
 import rearth.oritech.util.*;
 import rearth.oritech.util.energy.EnergyApi;
+import rearth.oritech.util.energy.EnergyOutputTargets;
 import rearth.oritech.util.energy.containers.DelegatingEnergyStorage;
 import rearth.oritech.util.energy.containers.DynamicEnergyStorage;
 
@@ -50,6 +51,9 @@ public abstract class ExpandableEnergyStorageBlockEntity extends BlockEntity imp
     private boolean networkDirty = false;
     private boolean redstonePowered;
     
+    private final EnergyOutputTargets outputTargets = new EnergyOutputTargets();
+    private Direction outputFacing;
+    
     public final SimpleInventory inventory = new SimpleInventory(1) {
         @Override
         public void markDirty() {
@@ -105,12 +109,15 @@ public abstract class ExpandableEnergyStorageBlockEntity extends BlockEntity imp
         
         chargeItems();
         
-        // todo caching for targets? Used to be BlockApiCache.create()
-        var target = getOutputPosition(pos, getFacing());
-        var candidate = EnergyApi.BLOCK.find(world, target.getRight(), target.getLeft());
-        if (candidate != null) {
-            EnergyApi.transfer(energyStorage, candidate, Long.MAX_VALUE, false);
+        // the output face moves when the storage is rotated
+        var facing = getFacing();
+        if (!outputTargets.isValid() || facing != outputFacing) {
+            var target = getOutputPosition(pos, facing);
+            outputTargets.update((ServerWorld) world, List.of(new Pair<>(target.getRight(), target.getLeft())));
+            outputFacing = facing;
         }
+        
+        outputTargets.outputEnergy(energyStorage);
     }
     
     private void chargeItems() {
@@ -238,7 +245,7 @@ public abstract class ExpandableEnergyStorageBlockEntity extends BlockEntity imp
     
     @Override
     public Object getScreenOpeningData(ServerPlayerEntity player) {
-        sendNetworkEntry();
+        NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(new NetworkContent.GenericEnergySyncPacket(pos, energyStorage.amount, energyStorage.capacity));
         return new ModScreens.UpgradableData(pos, getUiData(), getCoreQuality());
     }
     
@@ -248,17 +255,21 @@ public abstract class ExpandableEnergyStorageBlockEntity extends BlockEntity imp
         networkDirty = true;
     }
     
-    private boolean isActivelyViewed() {
-        var closestPlayer = Objects.requireNonNull(world).getClosestPlayer(pos.getX(), pos.getY(), pos.getZ(), 5, false);
-        return closestPlayer != null && closestPlayer.currentScreenHandler instanceof BasicMachineScreenHandler handler && getPos().equals(handler.getBlockPos());
-    }
-    
+    // all tracking players are updated every 15 ticks. Players that have the screen opened get the updates every tick
     protected void sendNetworkEntry() {
         
-        if (world.getTime() % 15 != 0 && !isActivelyViewed()) return;
+        if (Objects.requireNonNull(world).getTime() % 15 == 0) {
+            NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.GenericEnergySyncPacket(pos, energyStorage.amount, energyStorage.capacity));
+            networkDirty = false;
+            return;
+        }
+        
+        var viewers = ScreenViewers.getViewers(world, pos);
+        if (viewers.isEmpty()) return;
         
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.GenericEnergySyncPacket(pos, energyStorage.amount, energyStorage.capacity));
-        networkDirty = false;
+        var packet = new NetworkContent.GenericEnergySyncPacket(pos, energyStorage.amount, energyStorage.capacity);
+        for (var player : viewers)
+            NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(packet);
     }
     
     @Override
@@ -269,7 +280,8 @@ public abstract class ExpandableEnergyStorageBlockEntity extends BlockEntity imp
     @Nullable
     @Override
     public ScreenHandler createMenu(int syncId, PlayerInventory playerInventory, PlayerEntity player) {
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.FullEnergySyncPacket(pos, energyStorage.amount, energyStorage.capacity, energyStorage.maxInsert, energyStorage.maxExtract));
+        if (player instanceof ServerPlayerEntity serverPlayer)
+            NetworkContent.MACHINE_CHANNEL.serverHandle(serverPlayer).send(new NetworkContent.FullEnergySyncPacket(pos, energyStorage.amount, energyStorage.capacity, energyStorage.maxInsert, energyStorage.maxExtract));
         
         return new UpgradableMachineScreenHandler(syncId, playerInventory, this, getUiData(), getCoreQuality());
     }
@@ -334,6 +346,10 @@ public abstract class ExpandableEnergyStorageBlockEntity extends BlockEntity imp
         this.redstonePowered = isPowered;
     }
     
+    public void onNeighborUpdate() {
+        outputTargets.invalidate();
+    }
+    
     @Override
     public boolean hasRedstoneControlAvailable() {
         return true;
@@ -176,7 +176,7 @@ public abstract class FluidMultiblockGeneratorBlockEntity extends MultiblockGene
     @Override
     protected void sendNetworkEntry() {
         super.sendNetworkEntry();
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.SingleVariantFluidSyncPacket(pos, Registries.FLUID.getId(inputTank.variant.getFluid()).toString(), inputTank.amount));
+        sendNetworkPacket(new NetworkContent.SingleVariantFluidSyncPacket(pos, Registries.FLUID.getId(inputTank.variant.getFluid()).toString(), inputTank.amount));
     }
     
     @Override
@@ -40,6 +40,7 @@ public abstract class FrameInteractionBlockEntity extends BlockEntity implements
     private Vec3i currentDirection = new Vec3i(1, 0, 0);    // not synced
     public long lastWorkedAt;   // not synced
     public boolean disabledViaRedstone;
+    protected boolean sleeping;     // set while the machine can't progress, cleared on any change (see markDirty)
     
     // client only
     private long moveStartedAt;
@@ -205,7 +206,11 @@ public abstract class FrameInteractionBlockEntity extends BlockEntity implements
     public void tick(World world, BlockPos pos, BlockState state, FrameInteractionBlockEntity blockEntity) {
         if (world.isClient || !isActive(state) || !state.get(FrameInteractionBlock.HAS_FRAME) || getAreaMin() == null) return;
         
-        if (!canProgress()) return;
+        if (sleeping && Oritech.CONFIG.idleMachinesSleep()) return;
+        if (!canProgress()) {
+            if (Oritech.CONFIG.idleMachinesSleep()) sleeping = true;
+            return;
+        }
         
         // yes this is inaccurate, but when the machine is this fast the move duration can just be skipped
         var skipMoveTime = getMoveTime() <= 1;
@@ -332,8 +337,13 @@ public abstract class FrameInteractionBlockEntity extends BlockEntity implements
         NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.MachineFrameMovementPacket(pos, currentTarget, lastTarget, areaMin, areaMax, disabledViaRedstone));
     }
     
+    public void wakeUp() {
+        sleeping = false;
+    }
+    
     @Override
     public void markDirty() {
+        wakeUp();
         if (this.world != null)
             world.markDirty(pos);
     }
@@ -20,7 +20,6 @@ import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
 import rearth.oritech.block.entity.addons.RedstoneAddonBlockEntity;
 import rearth.oritech.client.init.ModScreens;
-import rearth.oritech.client.ui.BasicMachineScreenHandler;
 import rearth.oritech.client.ui.UpgradableMachineScreenHandler;
 import rearth.oritech.network.NetworkContent;
 import rearth.oritech.util.*;
@@ -192,14 +191,19 @@ public abstract class ItemEnergyFrameInteractionBlockEntity extends FrameInterac
     public void tick(World world, BlockPos pos, BlockState state, FrameInteractionBlockEntity blockEntity) {
         super.tick(world, pos, state, blockEntity);
         
-        if (!world.isClient && isActivelyViewed()) {
-            NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.MachineFrameGuiPacket(pos, energyStorage.amount, energyStorage.capacity, getCurrentProgress()));
+        if (world.isClient) return;
+        
+        // only players with the screen open need this
+        var viewers = ScreenViewers.getViewers(world, pos);
+        if (!viewers.isEmpty()) {
+            var packet = new NetworkContent.MachineFrameGuiPacket(pos, energyStorage.amount, energyStorage.capacity, getCurrentProgress());
+            for (var player : viewers)
+                NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(packet);
         }
     }
     
     protected boolean isActivelyViewed() {
-        var closestPlayer = Objects.requireNonNull(world).getClosestPlayer(pos.getX(), pos.getY(), pos.getZ(), 5, false);
-        return closestPlayer != null && closestPlayer.currentScreenHandler instanceof BasicMachineScreenHandler handler && getPos().equals(handler.getBlockPos());
+        return ScreenViewers.isViewed(Objects.requireNonNull(world), pos);
     }
     
     @Override
@@ -284,6 +288,7 @@ public abstract class ItemEnergyFrameInteractionBlockEntity extends FrameInterac
     @Override
     public void onRedstoneEvent(boolean isPowered) {
         this.disabledViaRedstone = isPowered;
+        wakeUp();
     }
     
     @Override
@@ -19,17 +19,21 @@ import net.minecraft.recipe.input.RecipeInput;
 import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.state.property.Properties;
 import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
+import rearth.oritech.Oritech;
 import rearth.oritech.block.entity.addons.RedstoneAddonBlockEntity;
 import rearth.oritech.client.init.ModScreens;
 import rearth.oritech.client.ui.BasicMachineScreenHandler;
 import rearth.oritech.init.recipes.OritechRecipe;
 import rearth.oritech.init.recipes.OritechRecipeType;
+import rearth.oritech.network.MachineSyncQueue;
 import rearth.oritech.network.NetworkContent;
 import rearth.oritech.util.*;
 import rearth.oritech.util.energy.EnergyApi;
@@ -40,6 +44,7 @@ import software.bernie.geckolib.animatable.instance.AnimatableInstanceCache;
 import software.bernie.geckolib.animation.*;
 import software.bernie.geckolib.util.GeckoLibUtil;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -54,6 +59,7 @@ public abstract class MachineBlockEntity extends BlockEntity
     public static final RawAnimation IDLE = RawAnimation.begin().thenPlayAndHold("idle");
     public static final RawAnimation WORKING = RawAnimation.begin().thenLoop("working");
     
+    
     protected final AnimatableInstanceCache animatableInstanceCache = GeckoLibUtil.createInstanceCache(this);
     public final SimpleInventory inventory = new SimpleMachineInventory(getInventorySize());
     // crafting / processing
@@ -63,8 +69,20 @@ public abstract class MachineBlockEntity extends BlockEntity
     protected InventoryInputMode inventoryInputMode = InventoryInputMode.FILL_LEFT_TO_RIGHT;
     protected boolean disabledViaRedstone = false;
     public long lastWorkedAt;
+    // result of the last recipe lookup, re-used until the input items change
+    private Optional<RecipeEntry<OritechRecipe>> cachedRecipe = Optional.empty();
+    private ItemStack[] cachedRecipeInputs;
+    private OritechRecipeType.RecipeIndex cachedRecipeIndex;
     // network state
     protected boolean networkDirty = true;
+    // blocked machines skip their ticks until something changes (inventory, energy, redstone or neighbor updates)
+    protected boolean sleeping = false;
+    // players that receive the network entry currently being sent. Null means all players tracking this machine
+    @Nullable
+    private Collection<ServerPlayerEntity> networkTargets;
+    // last values sent to all tracking players. Only changed fields are sent, players that start tracking later get the full state with the chunk data
+    private final long[] syncedValues = new long[NetworkContent.MachineSyncEntry.VALUE_COUNT];
+    private OritechRecipe syncedRecipe;
     //own storage
     public final DynamicEnergyStorage energyStorage = new DynamicEnergyStorage(getDefaultCapacity(), getDefaultInsertRate(), getDefaultExtractionRate(), this::markDirty);
     
@@ -80,8 +98,10 @@ public abstract class MachineBlockEntity extends BlockEntity
     @Override
     public void tick(World world, BlockPos pos, BlockState state, MachineBlockEntity blockEntity) {
         
-        if (world.isClient || !isActive(state) || disabledViaRedstone) return;
+        // machines also wake up when sleeping gets disabled in the config
+        if (world.isClient || !isActive(state) || disabledViaRedstone || sleeping && Oritech.CONFIG.idleMachinesSleep()) return;
         
+        var blocked = true;
         var recipeCandidate = getRecipe();
         if (recipeCandidate.isEmpty())
             currentRecipe = OritechRecipe.DUMMY;     // reset recipe when invalid or no input is given
@@ -92,6 +112,7 @@ public abstract class MachineBlockEntity extends BlockEntity
             
             // this is separate so that progress is not reset when out of energy
             if (hasEnoughEnergy()) {
+                blocked = false;
                 var activeRecipe = recipeCandidate.get().value();
                 currentRecipe = activeRecipe;
                 lastWorkedAt = world.getTime();
@@ -119,15 +140,27 @@ public abstract class MachineBlockEntity extends BlockEntity
         if (networkDirty) {
             updateNetwork();
         }
+        
+        if (blocked) trySleep();
+    }
+    
+    // the pending network update is sent first, so the client doesn't keep an outdated state while the machine sleeps
+    protected void trySleep() {
+        if (Oritech.CONFIG.idleMachinesSleep() && !networkDirty)
+            sleeping = true;
+    }
+    
+    public void wakeUp() {
+        sleeping = false;
     }
     
     // returns true if input items match
     protected boolean canProceed(OritechRecipe value) {
         
-        var inputInv = getInputInventory();
+        var inputInv = getInputView();
         for (int i = 0; i < value.getInputs().size(); i++) {
             var input = value.getInputs().get(i);
-            if (!input.test(inputInv.getStackInSlot(i))) return false;
+            if (!input.test(i < inputInv.size() ? inputInv.get(i) : ItemStack.EMPTY)) return false;
         }
         
         return true;
@@ -150,41 +183,108 @@ public abstract class MachineBlockEntity extends BlockEntity
         
         if (!networkDirty) return;
         
-        var updateFrequency = 5;
-        
-        // checks if a player has the inventory opened. In this case, update net every tick. In the screen we want to data to always be live, while otherwise it can be
-        // a few ticks old (e.g. for rendering), as this does not matter as much.
-        // Currently not perfect for multiplayer, as it doesn't track individual players. So all players that match the entity handle will receive the packets while
-        // the screen is open
-        if (isActivelyViewed()) updateFrequency = 1;
-        
-        if (Objects.requireNonNull(this.world).getTime() % updateFrequency != 0) return;
+        // all tracking players are updated every few ticks, which is enough for rendering. Players that have the screen opened
+        // get the updates every tick, so the data in the screen is always live.
+        if (Objects.requireNonNull(this.world).getTime() % 5 == 0) {
+            sendNetworkEntry();
+            return;
+        }
         
+        var viewers = ScreenViewers.getViewers(world, pos);
+        if (!viewers.isEmpty())
+            sendNetworkEntry(viewers);
+    }
+    
+    // sends a full update to the given players only. The other tracking players still get the update later
+    private void sendNetworkEntry(Collection<ServerPlayerEntity> targets) {
+        var wasDirty = networkDirty;
+        networkTargets = targets;
         sendNetworkEntry();
+        networkTargets = null;
+        networkDirty = wasDirty;
     }
     
-    private boolean isActivelyViewed() {
-        var closestPlayer = Objects.requireNonNull(world).getClosestPlayer(pos.getX(), pos.getY(), pos.getZ(), 5, false);
-        return closestPlayer != null && closestPlayer.currentScreenHandler instanceof BasicMachineScreenHandler handler && getPos().equals(handler.getBlockPos());
+    protected <R extends Record> void sendNetworkPacket(R packet) {
+        if (networkTargets == null) {
+            NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(packet);
+            return;
+        }
+        
+        for (var player : networkTargets)
+            NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(packet);
     }
     
     protected void sendNetworkEntry() {
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.MachineSyncPacket(getPos(), energyStorage.amount, energyStorage.capacity, energyStorage.maxInsert, energyStorage.maxExtract, progress, currentRecipe, inventoryInputMode, lastWorkedAt, disabledViaRedstone));
         networkDirty = false;
+        
+        var values = getSyncValues();
+        
+        if (networkTargets != null) {
+            var entry = createSyncEntry(values, null, true);
+            sendNetworkPacket(new NetworkContent.MachineSyncPacket(List.of(entry)));
+            return;
+        }
+        
+        var entry = createSyncEntry(values, syncedValues, false);
+        System.arraycopy(values, 0, syncedValues, 0, values.length);
+        syncedRecipe = currentRecipe;
+        
+        if (entry.fields() != 0)
+            MachineSyncQueue.enqueue((ServerWorld) world, entry);
     }
     
-    // used to set relevant fields in client world
-    public void handleNetworkEntry(NetworkContent.MachineSyncPacket message) {
+    private long[] getSyncValues() {
+        return new long[] {energyStorage.amount, energyStorage.capacity, energyStorage.maxInsert, energyStorage.maxExtract, progress, inventoryInputMode.ordinal(), lastWorkedAt, disabledViaRedstone ? 1 : 0};
+    }
+    
+    private NetworkContent.MachineSyncEntry createSyncEntry(long[] values, long[] previous, boolean full) {
+        var fields = 0;
+        var changedCount = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (full || values[i] != previous[i]) {
+                fields |= 1 << i;
+                changedCount++;
+            }
+        }
+        
+        var changedValues = values;
+        if (changedCount < values.length) {
+            changedValues = new long[changedCount];
+            var next = 0;
+            for (int i = 0; i < values.length; i++) {
+                if ((fields & 1 << i) != 0) changedValues[next++] = values[i];
+            }
+        }
         
-        this.setProgress(message.progress());
-        this.setEnergyStored(message.energy());
-        this.energyStorage.maxInsert = message.maxInsert();
-        this.energyStorage.maxExtract = message.maxExtract();
-        this.energyStorage.capacity = message.maxEnergy();
-        this.setCurrentRecipe(message.activeRecipe());
-        this.setInventoryInputMode(message.inputMode());
-        this.lastWorkedAt = message.lastWorkedAt();
-        this.disabledViaRedstone = message.disabledViaRedstone();
+        Optional<Identifier> recipeId = Optional.empty();
+        if (full || currentRecipe != syncedRecipe) {
+            fields |= NetworkContent.MachineSyncEntry.RECIPE;
+            recipeId = Optional.ofNullable(currentRecipe.getOriType().getIndex(Objects.requireNonNull(world).getRecipeManager()).getId(currentRecipe));
+        }
+        
+        return new NetworkContent.MachineSyncEntry(pos, fields, changedValues, recipeId);
+    }
+    
+    // used to set relevant fields in client world
+    public void handleNetworkEntry(NetworkContent.MachineSyncEntry entry) {
+        
+        var values = entry.values();
+        var next = 0;
+        if (entry.has(NetworkContent.MachineSyncEntry.ENERGY)) this.setEnergyStored(values[next++]);
+        if (entry.has(NetworkContent.MachineSyncEntry.MAX_ENERGY)) this.energyStorage.capacity = values[next++];
+        if (entry.has(NetworkContent.MachineSyncEntry.MAX_INSERT)) this.energyStorage.maxInsert = values[next++];
+        if (entry.has(NetworkContent.MachineSyncEntry.MAX_EXTRACT)) this.energyStorage.maxExtract = values[next++];
+        if (entry.has(NetworkContent.MachineSyncEntry.PROGRESS)) this.setProgress((int) values[next++]);
+        if (entry.has(NetworkContent.MachineSyncEntry.INPUT_MODE)) this.setInventoryInputMode(InventoryInputMode.values()[(int) values[next++]]);
+        if (entry.has(NetworkContent.MachineSyncEntry.LAST_WORKED_AT)) this.lastWorkedAt = values[next++];
+        if (entry.has(NetworkContent.MachineSyncEntry.REDSTONE)) this.disabledViaRedstone = values[next] != 0;
+        
+        if (entry.has(NetworkContent.MachineSyncEntry.RECIPE)) {
+            var recipe = entry.recipe()
+                           .flatMap(id -> Objects.requireNonNull(world).getRecipeManager().get(id))
+                           .map(RecipeEntry::value);
+            this.setCurrentRecipe(recipe.isPresent() && recipe.get() instanceof OritechRecipe oritechRecipe ? oritechRecipe : OritechRecipe.DUMMY);
+        }
     }
     
     public List<ItemStack> getCraftingResults(OritechRecipe activeRecipe) {
@@ -257,7 +357,26 @@ public abstract class MachineBlockEntity extends BlockEntity
     }
     
     protected Optional<RecipeEntry<OritechRecipe>> getRecipe() {
-        return world.getRecipeManager().getFirstMatch(getOwnRecipeType(), getInputInventory(), world);
+        var index = getOwnRecipeType().getIndex(world.getRecipeManager());
+        if (index != cachedRecipeIndex || recipeInputsChanged()) {
+            cachedRecipe = index.getFirstMatch(getInputInventory(), world);
+            cachedRecipeIndex = index;
+            cachedRecipeInputs = getInputView().stream().map(ItemStack::copy).toArray(ItemStack[]::new);
+        }
+        
+        return cachedRecipe;
+    }
+    
+    // recipes only check the item and components of the inputs, so count changes don't need a new lookup
+    private boolean recipeInputsChanged() {
+        var inputs = getInputView();
+        if (cachedRecipeInputs == null || cachedRecipeInputs.length != inputs.size()) return true;
+        
+        for (int i = 0; i < cachedRecipeInputs.length; i++) {
+            if (!ItemStack.areItemsAndComponentsEqual(inputs.get(i), cachedRecipeInputs[i])) return true;
+        }
+        
+        return false;
     }
     
     protected abstract OritechRecipeType getOwnRecipeType();
@@ -294,6 +413,12 @@ public abstract class MachineBlockEntity extends BlockEntity
     
     @Override
     protected void readNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
+        if (isInitialChunkData(nbt)) {
+            if (world != null && world.isClient)
+                readSyncNbt(nbt.getCompound("oritech.sync"));
+            return;
+        }
+        
         Inventories.readNbt(nbt, inventory.heldStacks, registryLookup);
         progress = nbt.getInt("oritech.machine_progress");
         energyStorage.amount = nbt.getLong("oritech.machine_energy");
@@ -301,6 +426,38 @@ public abstract class MachineBlockEntity extends BlockEntity
         disabledViaRedstone = nbt.getBoolean("oritech.redstone");
     }
     
+    /**
+     * The initial chunk data only contains the synced values, and none of the saved data. Subclasses that derive synced
+     * values from their saved data (e.g. the energy capacity from addons) need to skip it, so the synced values aren't
+     * overwritten by defaults.
+     */
+    protected static boolean isInitialChunkData(NbtCompound nbt) {
+        return nbt.contains("oritech.sync");
+    }
+    
+    // players that start tracking this machine get the full synced state with the chunk data, later updates only contain the changes
+    @Override
+    public NbtCompound toInitialChunkDataNbt(RegistryWrapper.WrapperLookup registryLookup) {
+        var nbt = new NbtCompound();
+        var entry = createSyncEntry(getSyncValues(), null, true);
+        
+        var sync = new NbtCompound();
+        sync.putLongArray("values", entry.values());
+        entry.recipe().ifPresent(id -> sync.putString("recipe", id.toString()));
+        nbt.put("oritech.sync", sync);
+        
+        return nbt;
+    }
+    
+    private void readSyncNbt(NbtCompound sync) {
+        var values = sync.getLongArray("values");
+        if (values.length != NetworkContent.MachineSyncEntry.VALUE_COUNT) return;
+        
+        var recipe = sync.contains("recipe") ? Optional.ofNullable(Identifier.tryParse(sync.getString("recipe"))) : Optional.<Identifier>empty();
+        var fields = (1 << NetworkContent.MachineSyncEntry.VALUE_COUNT) - 1 | NetworkContent.MachineSyncEntry.RECIPE;
+        handleNetworkEntry(new NetworkContent.MachineSyncEntry(pos, fields, values, recipe));
+    }
+    
     private int slotRecipeSearch(ItemStack stack, List<ItemStack> inv) {
         
         // find matching recipe
@@ -454,7 +611,7 @@ public abstract class MachineBlockEntity extends BlockEntity
     
     @Override
     public Object getScreenOpeningData(ServerPlayerEntity player) {
-        sendNetworkEntry();
+        sendNetworkEntry(List.of(player));
         return new ModScreens.BasicData(pos);
     }
     
@@ -589,6 +746,7 @@ public abstract class MachineBlockEntity extends BlockEntity
             world.markDirty(pos);
         
         markNetDirty();
+        wakeUp();
     }
     
     @Override
@@ -620,6 +778,7 @@ public abstract class MachineBlockEntity extends BlockEntity
     @Override
     public void onRedstoneEvent(boolean isPowered) {
         this.disabledViaRedstone = isPowered;
+        wakeUp();
     }
     
     private class SimpleMachineInventory extends SimpleSidedInventory {
@@ -6,18 +6,26 @@ import net.minecraft.block.entity.BlockEntityTicker;
 import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Pair;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
+import rearth.oritech.Oritech;
 import rearth.oritech.util.energy.EnergyApi;
+import rearth.oritech.util.energy.EnergyOutputTargets;
 import rearth.oritech.util.energy.containers.SimpleEnergyStorage;
 
 import java.util.Set;
 
 public abstract class PassiveGeneratorBlockEntity extends BlockEntity implements EnergyApi.BlockProvider, BlockEntityTicker<PassiveGeneratorBlockEntity> {
     
+    // production depends on the time of day, which doesn't cause any updates. So idle generators check again after this interval
+    private static final int IDLE_CHECK_INTERVAL = 20;
+    
     protected final SimpleEnergyStorage energyStorage = new SimpleEnergyStorage(0, 5_000, 200_000, this::markDirty);
+    private final EnergyOutputTargets outputTargets = new EnergyOutputTargets();
+    private long sleepingUntil;
     
     public PassiveGeneratorBlockEntity(BlockEntityType<?> type, BlockPos pos, BlockState state) {
         super(type, pos, state);
@@ -25,7 +33,13 @@ public abstract class PassiveGeneratorBlockEntity extends BlockEntity implements
     
     @Override
     public void tick(World world, BlockPos pos, BlockState state, PassiveGeneratorBlockEntity blockEntity) {
-        if (world.isClient || !isProducing()) return;
+        if (world.isClient || world.getTime() < sleepingUntil) return;
+        
+        if (!isProducing()) {
+            if (Oritech.CONFIG.idleMachinesSleep())
+                sleepingUntil = world.getTime() + IDLE_CHECK_INTERVAL;
+            return;
+        }
         
         var producedAmount = getProductionRate();
         if (energyStorage.insertIgnoringLimit(producedAmount, false) > 0) {
@@ -39,11 +53,25 @@ public abstract class PassiveGeneratorBlockEntity extends BlockEntity implements
     private void outputEnergy() {
         if (energyStorage.getAmount() <= 0) return;
         
-        for (var target : getOutputTargets(pos, world)) {
-            var candidate = EnergyApi.BLOCK.find(world, target.getLeft(), target.getRight());
-            if (candidate != null)
-                EnergyApi.transfer(energyStorage, candidate, Long.MAX_VALUE, false);
-        }
+        if (!outputTargets.isValid())
+            outputTargets.update((ServerWorld) world, getOutputTargets(pos, world));
+        
+        outputTargets.outputEnergy(energyStorage);
+    }
+    
+    public void wakeUp() {
+        sleepingUntil = 0;
+    }
+    
+    public void onNeighborUpdate() {
+        outputTargets.invalidate();
+        wakeUp();
+    }
+    
+    @Override
+    public void markDirty() {
+        super.markDirty();
+        wakeUp();
     }
     
     public abstract int getProductionRate();
@@ -55,7 +55,7 @@ public abstract class UpgradableGeneratorBlockEntity extends UpgradableMachineBl
         // if burn time is zero, try to consume item thus adding burn time
         // if burn time is remaining, use up one tick of it
         
-        if (world.isClient || !isActive(state) || disabledViaRedstone) return;
+        if (world.isClient || !isActive(state) || disabledViaRedstone || sleeping) return;
         
         // progress var is used as remaining burn time
         if (progress > 0) {
@@ -81,6 +81,9 @@ public abstract class UpgradableGeneratorBlockEntity extends UpgradableMachineBl
         }
         
         outputEnergy();
+        
+        // nothing is burning and there is no energy left to output
+        if (progress == 0 && energyStorage.amount <= 0) trySleep();
     }
     
     protected void tryConsumeInput() {
@@ -220,10 +223,10 @@ public abstract class UpgradableGeneratorBlockEntity extends UpgradableMachineBl
     @Override
     protected void sendNetworkEntry() {
         super.sendNetworkEntry();
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.GeneratorUISyncPacket(getPos(), currentMaxBurnTime, isProducingSteam));
+        sendNetworkPacket(new NetworkContent.GeneratorUISyncPacket(getPos(), currentMaxBurnTime, isProducingSteam));
         
         if (isProducingSteam)
-            NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.GeneratorSteamSyncPacket(pos, steamStorage.amount, waterStorage.amount));
+            sendNetworkPacket(new NetworkContent.GeneratorSteamSyncPacket(pos, steamStorage.amount, waterStorage.amount));
     }
     
     protected abstract Set<Pair<BlockPos, Direction>> getOutputTargets(BlockPos pos, World world);
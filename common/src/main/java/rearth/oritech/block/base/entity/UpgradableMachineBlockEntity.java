@@ -64,6 +64,8 @@ public abstract class UpgradableMachineBlockEntity extends MachineBlockEntity im
     @Override
     protected void readNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
         super.readNbt(nbt, registryLookup);
+        if (isInitialChunkData(nbt)) return;
+        
         loadAddonNbtData(nbt);
         
         updateEnergyContainer();
@@ -14,7 +14,7 @@ import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import net.minecraft.world.explosion.Explosion;
 import org.jetbrains.annotations.Nullable;
-import rearth.oritech.block.entity.accelerator.AcceleratorParticleLogic;
+import rearth.oritech.block.entity.accelerator.AcceleratorGateGraph;
 
 import java.util.Objects;
 
@@ -38,26 +38,26 @@ public class AcceleratorPassthroughBlock extends HorizontalFacingBlock {
     @Override
     protected void onStateReplaced(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
         super.onStateReplaced(state, world, pos, newState, moved);
-        AcceleratorParticleLogic.resetCachedGate(pos);
+        AcceleratorGateGraph.onBlockChanged(world, pos);
     }
     
     @Override
     public BlockState onBreak(World world, BlockPos pos, BlockState state, PlayerEntity player) {
-        AcceleratorParticleLogic.resetCachedGate(pos);
+        AcceleratorGateGraph.onBlockChanged(world, pos);
         return super.onBreak(world, pos, state, player);
     }
     
     @Override
     protected void onBlockAdded(BlockState state, World world, BlockPos pos, BlockState oldState, boolean notify) {
         if (!world.isClient) {
-            AcceleratorParticleLogic.resetNearbyCache(pos);
+            AcceleratorGateGraph.onBlockChanged(world, pos);
         }
     }
     
     @Override
     public void onDestroyedByExplosion(World world, BlockPos pos, Explosion explosion) {
         super.onDestroyedByExplosion(world, pos, explosion);
-        AcceleratorParticleLogic.resetCachedGate(pos);
+        AcceleratorGateGraph.onBlockChanged(world, pos);
     }
     
     @Override
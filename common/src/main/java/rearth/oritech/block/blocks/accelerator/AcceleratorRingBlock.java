@@ -20,7 +20,7 @@ import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.world.BlockView;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
-import rearth.oritech.block.entity.accelerator.AcceleratorParticleLogic;
+import rearth.oritech.block.entity.accelerator.AcceleratorGateGraph;
 
 import java.util.List;
 import java.util.Objects;
@@ -75,11 +75,11 @@ public class AcceleratorRingBlock extends AcceleratorPassthroughBlock {
         if (isPowered && (lastRedstone == 0 || lastRedstone == 3)) {
             // store bent state and set straight
             world.setBlockState(pos, state.with(REDSTONE_STATE, lastBent).with(BENT, 0), Block.NOTIFY_LISTENERS, 1);
-            AcceleratorParticleLogic.resetCachedGate(pos);
+            AcceleratorGateGraph.onBlockChanged(world, pos);
         } else if (!isPowered && lastRedstone != 3 && lastRedstone != 0) {   // on redstone disabled
             // set bent to lastbent, set redstone to straight
             world.setBlockState(pos, state.with(REDSTONE_STATE, 0).with(BENT, lastRedstone), Block.NOTIFY_LISTENERS, 1);
-            AcceleratorParticleLogic.resetCachedGate(pos);
+            AcceleratorGateGraph.onBlockChanged(world, pos);
         }
         
     }
@@ -89,7 +89,7 @@ public class AcceleratorRingBlock extends AcceleratorPassthroughBlock {
         
         var newBent = (state.get(BENT) + 1) % 3;
         world.setBlockState(pos, state.with(BENT, newBent).with(REDSTONE_STATE, 3));
-        AcceleratorParticleLogic.resetCachedGate(pos);
+        AcceleratorGateGraph.onBlockChanged(world, pos);
         
         return ActionResult.SUCCESS;
     }
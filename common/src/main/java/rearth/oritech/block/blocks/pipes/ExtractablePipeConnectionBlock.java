@@ -9,11 +9,8 @@ import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
-import rearth.oritech.block.entity.pipes.ExtractablePipeInterfaceEntity;
 import rearth.oritech.init.ItemContent;
 
-import java.util.HashSet;
-
 public abstract class ExtractablePipeConnectionBlock extends GenericPipeConnectionBlock {
 
 	public static final int EXTRACT = 2;
@@ -50,29 +47,16 @@ public abstract class ExtractablePipeConnectionBlock extends GenericPipeConnecti
 	}
 
 	/**
-	 * Invalidates the target cache of the block entity at the given position
+	 * Invalidates the target cache of all block entities in the network of the given position
 	 *
 	 * @param world the world
 	 * @param pos   the position
 	 */
 	protected void invalidateTargetCache(World world, BlockPos pos) {
 		var data = getNetworkData(world);
-		var network = data.pipeNetworkLinks.getOrDefault(pos, null);
-		if (network != null) {
-			var checked = new HashSet<BlockPos>();
-
-			// Invalidate all pipe connection nodes in the network
-			for (var pipeInterface : data.pipeNetworkInterfaces.get(network)) {
-				// Skip node if already checked (node has multiple interface connections)
-				var pipePos = pipeInterface.getLeft().offset(pipeInterface.getRight());
-				if (checked.contains(pipePos)) continue;
-
-				checked.add(pipePos);
-				var pipeEntity = world.getBlockEntity(pipePos);
-				if (pipeEntity instanceof ExtractablePipeInterfaceEntity)
-					((ExtractablePipeInterfaceEntity) pipeEntity).invalidateTargetCache();
-			}
-		}
+		var network = data.getNetworkId(pos);
+		if (network != -1)
+			data.markNetworkChanged(network);
 	}
 
 	@Override
@@ -24,7 +24,6 @@ import rearth.oritech.block.entity.pipes.GenericPipeInterfaceEntity;
 import rearth.oritech.item.tools.Wrench;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 public abstract class GenericPipeBlock extends Block implements Wrench.Wrenchable {
@@ -146,14 +145,14 @@ public abstract class GenericPipeBlock extends Block implements Wrench.Wrenchabl
 		// transform to interface when machine is placed as neighbor
 		if (hasMachineInDirection(direction, world, pos, apiValidationFunction())) {
 			// Only update if the neighbor is a new machine
-			var hasMachine = getNetworkData(world).machinePipeNeighbors.getOrDefault(neighborPos, HashSet.newHashSet(0)).contains(direction.getOpposite());
+			var hasMachine = getNetworkData(world).hasMachinePipeNeighbor(neighborPos, direction.getOpposite());
 			if (hasMachine) return state;
 
 			var connectionBlock = getConnectionBlock();
 			return ((GenericPipeBlock) connectionBlock.getBlock()).addConnectionStates(connectionBlock, world, pos, direction);
 		} else if (neighborState.isOf(Blocks.AIR))
 			// remove potential stale machine -> neighboring pipes mapping
-			getNetworkData(world).machinePipeNeighbors.remove(neighborPos);
+			getNetworkData(world).removeMachinePipeNeighbors(neighborPos);
 
 		return state;
 	}
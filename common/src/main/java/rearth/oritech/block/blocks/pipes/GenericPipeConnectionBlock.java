@@ -18,8 +18,6 @@ import org.jetbrains.annotations.Nullable;
 import rearth.oritech.Oritech;
 import rearth.oritech.block.entity.pipes.GenericPipeInterfaceEntity;
 
-import java.util.HashSet;
-
 public abstract class GenericPipeConnectionBlock extends GenericPipeBlock implements BlockEntityProvider {
     
     public GenericPipeConnectionBlock(Settings settings) {
@@ -59,7 +57,7 @@ public abstract class GenericPipeConnectionBlock extends GenericPipeBlock implem
         var interfaceState = state;
         if (!(neighborState.getBlock() instanceof GenericPipeBlock)) {
             // only update connection if neighbor is a new machine
-            var hasMachine = getNetworkData(worldImp).machinePipeNeighbors.getOrDefault(neighborPos, HashSet.newHashSet(0)).contains(direction.getOpposite());
+            var hasMachine = getNetworkData(worldImp).hasMachinePipeNeighbor(neighborPos, direction.getOpposite());
             if (neighborState.isOf(Blocks.AIR) || !hasMachine) {
                 interfaceState = addConnectionStates(state, worldImp, pos, direction);
             }
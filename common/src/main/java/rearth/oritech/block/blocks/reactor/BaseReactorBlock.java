@@ -1,6 +1,7 @@
 package rearth.oritech.block.blocks.reactor;
 
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.resource.language.I18n;
@@ -10,6 +11,9 @@ import net.minecraft.item.tooltip.TooltipType;
 import net.minecraft.registry.Registries;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
 
 import java.util.List;
 
@@ -25,6 +29,21 @@ public abstract class BaseReactorBlock extends Block {
         return Blocks.AIR;
     }
     
+    // formed reactors update their structure when reactor blocks in their area are added or removed
+    @Override
+    protected void onBlockAdded(BlockState state, World world, BlockPos pos, BlockState oldState, boolean notify) {
+        super.onBlockAdded(state, world, pos, oldState, notify);
+        if (!oldState.isOf(state.getBlock()))
+            ReactorControllerBlockEntity.onReactorBlockChanged(world, pos);
+    }
+    
+    @Override
+    protected void onStateReplaced(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
+        super.onStateReplaced(state, world, pos, newState, moved);
+        if (!newState.isOf(state.getBlock()))
+            ReactorControllerBlockEntity.onReactorBlockChanged(world, pos);
+    }
+    
     @Override
     public void appendTooltip(ItemStack stack, Item.TooltipContext context, List<Text> tooltip, TooltipType options) {
         super.appendTooltip(stack, context, tooltip, options);
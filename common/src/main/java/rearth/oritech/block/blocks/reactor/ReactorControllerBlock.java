@@ -51,6 +51,13 @@ public class ReactorControllerBlock extends BaseReactorBlock implements BlockEnt
         return true;
     }
     
+    @Override
+    protected void onStateReplaced(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
+        super.onStateReplaced(state, world, pos, newState, moved);
+        if (!newState.isOf(state.getBlock()))
+            ReactorControllerBlockEntity.unregister(world, pos);
+    }
+    
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Nullable
     @Override
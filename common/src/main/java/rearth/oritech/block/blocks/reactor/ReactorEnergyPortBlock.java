@@ -9,7 +9,9 @@ import net.minecraft.state.StateManager;
 import net.minecraft.state.property.Properties;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
+import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
 import rearth.oritech.block.entity.reactor.ReactorEnergyPortEntity;
 
 import java.util.Objects;
@@ -38,6 +40,13 @@ public class ReactorEnergyPortBlock extends BaseReactorBlock implements BlockEnt
         return new ReactorEnergyPortEntity(pos, state);
     }
     
+    // lets the controller update its cached port state
+    @Override
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock, BlockPos sourcePos, boolean notify) {
+        super.neighborUpdate(state, world, pos, sourceBlock, sourcePos, notify);
+        ReactorControllerBlockEntity.onPortChanged(world, pos);
+    }
+    
     @Override
     public boolean validForWalls() {
         return true;
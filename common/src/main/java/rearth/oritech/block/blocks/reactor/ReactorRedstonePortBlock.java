@@ -14,6 +14,7 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
+import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
 
 import java.util.Objects;
 
@@ -67,6 +68,19 @@ public class ReactorRedstonePortBlock extends BaseReactorBlock {
         return state.get(Properties.POWER);
     }
     
+    // lets the controller update its cached port state
+    @Override
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock, BlockPos sourcePos, boolean notify) {
+        super.neighborUpdate(state, world, pos, sourceBlock, sourcePos, notify);
+        ReactorControllerBlockEntity.onPortChanged(world, pos);
+    }
+    
+    @Override
+    protected void onStateReplaced(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
+        super.onStateReplaced(state, world, pos, newState, moved);
+        ReactorControllerBlockEntity.onPortChanged(world, pos);
+    }
+    
     @Override
     public boolean validForWalls() {
         return true;
@@ -98,6 +98,7 @@ public class SmallStorageBlock extends Block implements BlockEntityProvider {
         
         var storageEntity = (ExpandableEnergyStorageBlockEntity) world.getBlockEntity(pos);
         storageEntity.setRedstonePowered(isPowered);
+        storageEntity.onNeighborUpdate();
         
     }
     
@@ -1,6 +1,7 @@
 package rearth.oritech.block.entity.accelerator;
 
 import io.wispforest.owo.util.VectorRandomUtils;
+import net.fabricmc.fabric.api.networking.v1.PlayerLookup;
 import net.fabricmc.fabric.api.screenhandler.v1.ExtendedScreenHandlerFactory;
 import net.fabricmc.fabric.api.transfer.v1.item.InventoryStorage;
 import net.minecraft.block.BlockState;
@@ -46,6 +47,7 @@ import rearth.oritech.util.*;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class AcceleratorControllerBlockEntity extends BlockEntity implements BlockEntityTicker<AcceleratorControllerBlockEntity>, InventoryProvider, ExtendedScreenHandlerFactory, ScreenProvider {
     
@@ -54,11 +56,18 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
     
     private AcceleratorParticleLogic particleLogic;
     
+    // the path clients currently move the particle along, and who received it
+    private static final int MAX_PATH_GATES = 64;
+    private static final double MAX_PATH_DEVIATION = 2;
+    private AcceleratorParticlePath sentPath;
+    private final Set<ServerPlayerEntity> pathRecipients = new HashSet<>();   // player instances, so relogging counts as a new player
+    
     private final SimpleInventory inventory = new SimpleSidedInventory(2, new InventorySlotAssignment(0, 1, 1, 1));   // 0 = input, 1 = output
     
     // client data
     public List<Vec3d> displayTrail;
     public LastEventPacket lastEvent = new LastEventPacket(pos, ParticleEvent.IDLE, 0, pos, 1, ItemStack.EMPTY);
+    private AcceleratorParticlePath clientPath;
     
     public AcceleratorControllerBlockEntity(BlockPos pos, BlockState state) {
         super(BlockEntitiesContent.ACCELERATOR_CONTROLLER_BLOCK_ENTITY, pos, state);
@@ -66,7 +75,11 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
     
     @Override
     public void tick(World world, BlockPos pos, BlockState state, AcceleratorControllerBlockEntity blockEntity) {
-        if (world.isClient) return;
+        if (world.isClient) {
+            if (clientPath != null) moveClientPath();
+            return;
+        }
+        
         initParticleLogic();
         
         // try insert item as particle
@@ -77,6 +90,11 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
         if (particle != null)
             particleLogic.update(particle);
         
+        if (particle == null && sentPath != null) {
+            sentPath = null;
+            pathRecipients.clear();
+        }
+        
     }
     
     @Override
@@ -218,15 +236,8 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
         
         if (inputA == null || inputA.isEmpty() || inputB == null || inputB.isEmpty()) return false;
         
-        var inputInv = new SimpleCraftingInventory(inputA, inputB);
-        var candidate = world.getRecipeManager().getFirstMatch(RecipeContent.PARTICLE_COLLISION, inputInv, world);
-        
-        if (candidate.isEmpty()) {
-            // try again in different order
-            inputInv = new SimpleCraftingInventory(inputB, inputA);
-            candidate = world.getRecipeManager().getFirstMatch(RecipeContent.PARTICLE_COLLISION, inputInv, world);
-        }
-        
+        // the collision order doesn't matter, so both are checked in the same lookup
+        var candidate = RecipeContent.PARTICLE_COLLISION.getIndex(world.getRecipeManager()).getPairMatch(inputA, inputB, world);
         if (candidate.isEmpty()) return false;
         
         var recipe = candidate.get().value();
@@ -319,11 +330,65 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
         
         if (positions.size() <= 1) return;
         
-        var resultList = new ArrayList<Vec3d>();
+        // the current speed is only shown in the screen
+        var event = new LastEventPacket(pos, ParticleEvent.ACCELERATING, particle.velocity, BlockPos.ofFloored(particle.position), particle.lastBendDistance + particle.lastBendDistance2, activeItemParticle);
+        for (var viewer : ScreenViewers.getViewers(world, pos))
+            NetworkContent.MACHINE_CHANNEL.serverHandle(viewer).send(event);
+        
+        // only players tracking the chunk of the controller can receive the path
+        var recipients = PlayerLookup.tracking(this);
+        if (recipients.isEmpty()) {
+            sentPath = null;
+            pathRecipients.clear();
+            return;
+        }
+        
+        // clients move along the path on their own, so it only needs to be sent again if the particle left it
+        if (sentPath != null) sentPath.advance();
+        var pathValid = sentPath != null
+                          && !sentPath.isFinished()
+                          && sentPath.getSpeed() == particle.velocity
+                          && sentPath.getPosition().distanceTo(particle.position) <= MAX_PATH_DEVIATION;
+        // players that stopped tracking the controller need the path again when they come back
+        pathRecipients.retainAll(recipients);
+        var hasNewRecipients = pathRecipients.size() < recipients.size();
+        if (pathValid && !hasNewRecipients) return;
+        
+        var prediction = particleLogic.predictPath(particle, MAX_PATH_GATES);
+        sentPath = new AcceleratorParticlePath(particle.position, prediction.gates(), prediction.loops(), particle.velocity);
+        
+        var packet = new NetworkContent.AcceleratorParticlePathPacket(pos, particle.position, prediction.gates(), prediction.loops(), particle.velocity);
+        pathRecipients.clear();
+        for (var player : recipients) {
+            NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(packet);
+            pathRecipients.add(player);
+        }
+        
+    }
+    
+    public AcceleratorParticleLogic.ActiveParticle getParticle() {
+        return particle;
+    }
+    
+    public void onParticleInsertedClient() {
+        var soundPos = pos.toCenterPos();
+        world.playSound(soundPos.x, soundPos.y, soundPos.z, SoundContent.CABLE_MOVING, SoundCategory.BLOCKS, 1f, 1f, true);
+    }
+    
+    public void onReceivePath(NetworkContent.AcceleratorParticlePathPacket packet) {
+        clientPath = new AcceleratorParticlePath(packet.start(), packet.gates(), packet.loops(), packet.speed());
+    }
+    
+    private void moveClientPath() {
+        
+        var trail = clientPath.advance();
+        var speed = clientPath.getSpeed();
+        if (clientPath.isFinished()) clientPath = null;
         
         // deduplicate / shorten list
+        var resultList = new ArrayList<Vec3d>();
         var positionSet = new HashSet<Vec3d>();
-        for (var position : positions) {
+        for (var position : trail) {
             if (positionSet.contains(position)) {
                 // loop reached, stop the list
                 break;
@@ -333,21 +398,15 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
             resultList.add(position);
         }
         
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.AcceleratorParticleRenderPacket(pos, resultList));
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new LastEventPacket(pos, ParticleEvent.ACCELERATING, particle.velocity, BlockPos.ofFloored(particle.position), particle.lastBendDistance + particle.lastBendDistance2, activeItemParticle));
-        
+        showTrail(resultList, speed);
     }
     
-    public AcceleratorParticleLogic.ActiveParticle getParticle() {
-        return particle;
-    }
-    
-    public void onParticleInsertedClient() {
-        var soundPos = pos.toCenterPos();
-        world.playSound(soundPos.x, soundPos.y, soundPos.z, SoundContent.CABLE_MOVING, SoundCategory.BLOCKS, 1f, 1f, true);
+    public void onReceiveMovement(List<Vec3d> displayTrail) {
+        clientPath = null;
+        showTrail(displayTrail, lastEvent.lastEventSpeed);
     }
     
-    public void onReceiveMovement(List<Vec3d> displayTrail) {
+    private void showTrail(List<Vec3d> displayTrail, float speed) {
         this.displayTrail = displayTrail;
         if (displayTrail.size() < 2) return;
         
@@ -364,7 +423,7 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
             }
         }
         
-        var pitch = Math.pow(lastEvent.lastEventSpeed, 0.1);
+        var pitch = Math.pow(speed, 0.1);
         world.playSound(soundPos.x, soundPos.y, soundPos.z, SoundContent.PARTICLE_MOVING, SoundCategory.BLOCKS, 2f, (float) pitch, true);
         
     }
@@ -436,6 +495,9 @@ public class AcceleratorControllerBlockEntity extends BlockEntity implements Blo
     public void onReceivedEvent(LastEventPacket event) {
         this.lastEvent = event;
         
+        // the particle is gone, stop moving it
+        if (!event.lastEvent.equals(ParticleEvent.ACCELERATING)) clientPath = null;
+        
         var soundPos = event.lastEventPosition.toCenterPos();
         if (event.lastEvent.equals(ParticleEvent.COLLIDED)) {
             world.playSound(soundPos.x, soundPos.y, soundPos.z, SoundEvents.ENTITY_WARDEN_SONIC_BOOM, SoundCategory.BLOCKS, 5f, 1, true);
@@ -0,0 +1,162 @@
+package rearth.oritech.block.entity.accelerator;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.state.property.Properties;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
+import rearth.oritech.Oritech;
+import rearth.oritech.block.blocks.accelerator.AcceleratorRingBlock;
+import rearth.oritech.init.BlockContent;
+import rearth.oritech.util.Geometry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The accelerator gates of one world, each with the segment to its next gate for every direction a particle can leave
+ * it in. A segment is walked once with the maximum gate distance, so it is valid for all particle speeds. It stores
+ * how far the walk went, which gate it reached and the direction a particle leaves that gate in (e.g. if it is curved).
+ * <p>
+ * Segments are created when a particle first leaves a gate in a direction. Only segments that reached a gate are kept,
+ * as other blocks don't report changes. Changing a gate block drops the segments starting at that position, and the
+ * ones whose walk passed it.
+ */
+public class AcceleratorGateGraph {
+    
+    private static final Map<RegistryKey<World>, AcceleratorGateGraph> GRAPHS = new HashMap<>();
+    
+    private final Long2ObjectOpenHashMap<Segment[]> gates = new Long2ObjectOpenHashMap<>();    // segments by start position, indexed by direction
+    
+    public static AcceleratorGateGraph get(World world) {
+        return GRAPHS.computeIfAbsent(world.getRegistryKey(), key -> new AcceleratorGateGraph());
+    }
+    
+    // called from gate blocks when they are placed, changed or removed
+    public static void onBlockChanged(World world, BlockPos pos) {
+        if (world.isClient) return;
+        
+        var graph = GRAPHS.get(world.getRegistryKey());
+        if (graph != null) graph.invalidate(pos);
+    }
+    
+    public static void onServerStopped() {
+        GRAPHS.clear();
+    }
+    
+    public static int getMaxSegmentLength() {
+        return Math.max(2, Oritech.CONFIG.maxGateDist());
+    }
+    
+    public Segment getSegment(World world, BlockPos from, Vec3i direction) {
+        var segments = gates.computeIfAbsent(from.asLong(), key -> new Segment[9]);
+        var index = getDirectionIndex(direction);
+        
+        var segment = segments[index];
+        if (segment == null) {
+            segment = findSegment(world, from, direction, getMaxSegmentLength());
+            if (segment.target() != null) segments[index] = segment;
+        }
+        
+        return segment;
+    }
+    
+    private void invalidate(BlockPos pos) {
+        gates.remove(pos.asLong());
+        
+        var maxLength = getMaxSegmentLength();
+        for (var x = -1; x <= 1; x++) {
+            for (var z = -1; z <= 1; z++) {
+                if (x == 0 && z == 0) continue;
+                var index = getDirectionIndex(x, z);
+                
+                for (var i = 1; i <= maxLength; i++) {
+                    var segments = gates.get(BlockPos.asLong(pos.getX() - x * i, pos.getY(), pos.getZ() - z * i));
+                    if (segments != null && segments[index] != null && segments[index].length() >= i)
+                        segments[index] = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Walks from the starting gate in the given direction, until a gate is found that can be entered from there.
+     * Air and rings facing another way are skipped, any other block stops the walk.
+     *
+     * @param direction either straight or diagonal
+     */
+    public static Segment findSegment(World world, BlockPos from, Vec3i direction, int maxLength) {
+        
+        for (int i = 1; i <= maxLength; i++) {
+            var candidatePos = from.add(direction.multiply(i));
+            var candidateState = world.getBlockState(candidatePos);
+            if (candidateState.isAir()) continue;
+            
+            if (candidateState.getBlock().equals(BlockContent.ACCELERATOR_MOTOR) || candidateState.getBlock().equals(BlockContent.ACCELERATOR_SENSOR))
+                return Segment.of(world, from, candidatePos, i);
+            
+            if (!candidateState.getBlock().equals(BlockContent.ACCELERATOR_RING)) return new Segment(null, i, direction);
+            
+            // check if ring is facing source pos (from)
+            var candidateBent = candidateState.get(AcceleratorRingBlock.BENT);
+            var candidateFacing = candidateState.get(Properties.HORIZONTAL_FACING);
+            var candidateRedstone = candidateState.get(AcceleratorRingBlock.REDSTONE_STATE);
+            
+            var candidateBack = candidatePos.add(Geometry.getBackward(candidateFacing).multiply(i));
+            var candidateFront = candidatePos.add(Geometry.getForward(candidateFacing).multiply(i));
+            
+            // front can be bent
+            if (candidateBent == 1) candidateFront = candidateFront.add(Geometry.getLeft(candidateFacing).multiply(i));
+            if (candidateBent == 2) candidateFront = candidateFront.add(Geometry.getRight(candidateFacing).multiply(i));
+            
+            var isValid = candidateBack.equals(from) || candidateFront.equals(from);
+            
+            // check if redstone input is valid
+            if (!isValid && candidateRedstone != 3) {
+                candidateFront = candidatePos.add(Geometry.getForward(candidateFacing).multiply(i));    // reset front
+                if (candidateRedstone == 1) {
+                    candidateFront = candidateFront.add(Geometry.getLeft(candidateFacing).multiply(i));
+                } else if (candidateRedstone == 2) {
+                    candidateFront = candidateFront.add(Geometry.getRight(candidateFacing).multiply(i));
+                }
+                
+                isValid = candidateFront.equals(from);
+            }
+            
+            if (isValid) return Segment.of(world, from, candidatePos, i);
+        
+        }
+        
+        return new Segment(null, maxLength, direction);
+    
+    }
+    
+    private static int getDirectionIndex(Vec3i direction) {
+        return getDirectionIndex(direction.getX(), direction.getZ());
+    }
+    
+    private static int getDirectionIndex(int x, int z) {
+        return (Math.clamp(x, -1, 1) + 1) * 3 + Math.clamp(z, -1, 1) + 1;
+    }
+    
+    /**
+     * @param target        the reached gate, or null if there is none within the maximum gate distance
+     * @param length        the amount of steps to the target. Without a target, the steps that were checked
+     * @param exitDirection the direction a particle leaves the target in
+     */
+    public record Segment(@Nullable BlockPos target, int length, Vec3i exitDirection) {
+        
+        private static Segment of(World world, BlockPos from, BlockPos target, int length) {
+            var exitDirection = AcceleratorParticleLogic.getGateExitDirection(world, from, target);
+            return new Segment(target, length, exitDirection);
+        }
+        
+        // the target, if a particle of this speed can reach it
+        @Nullable
+        public BlockPos getTarget(float speed) {
+            return length <= AcceleratorParticleLogic.getMaxGateDist(speed) ? target : null;
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package rearth.oritech.block.entity.accelerator;
 
 import net.minecraft.entity.LivingEntity;
+import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.state.property.Properties;
-import net.minecraft.util.Pair;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
+import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
 import rearth.oritech.Oritech;
 import rearth.oritech.block.blocks.accelerator.AcceleratorPassthroughBlock;
@@ -23,13 +24,15 @@ public class AcceleratorParticleLogic {
     private final ServerWorld world;
     private final AcceleratorControllerBlockEntity entity;
     
-    private static final Map<CompPair<BlockPos, Vec3i>, BlockPos> cachedGates = new HashMap<>();    // stores the next gate for a combo of source gate and direction
-    private static final Map<BlockPos, BlockPos> activeParticles = new HashMap<>(); // stores relations between position of particle -> position of controller
+    private final AcceleratorGateGraph gateGraph;
+    
+    private static final Map<RegistryKey<World>, Map<BlockPos, BlockPos>> activeParticles = new HashMap<>(); // stores relations between position of particle -> position of controller, per world
     
     public AcceleratorParticleLogic(BlockPos pos, ServerWorld world, AcceleratorControllerBlockEntity entity) {
         this.pos = pos;
         this.world = world;
         this.entity = entity;
+        this.gateGraph = AcceleratorGateGraph.get(world);
     }
     
     
@@ -45,6 +48,12 @@ public class AcceleratorParticleLogic {
         var checkedPositions = new HashSet<BlockPos>();
         
         var availableDistance = particle.velocity * timePassed;
+        
+        // the particle can't get further than the distance it moves this tick, so one lookup covers all positions it passes.
+        // The gates are all on one layer, so only the horizontal range is needed
+        var pathRange = Math.ceil(availableDistance) + 1;
+        var nearbyEntities = world.getEntitiesByClass(LivingEntity.class, new Box(BlockPos.ofFloored(particle.position)).expand(pathRange, 0, pathRange), AcceleratorParticleLogic::isTargetable);
+        
         while (availableDistance > 0.001) {
             
             if (particle.nextGate == null) {
@@ -73,15 +82,21 @@ public class AcceleratorParticleLogic {
             renderedTrail.add(particle.position);
             particle.lastBendDistance += moveDist;
             
-            checkParticleEntityCollision(particle.position, particle, checkedPositions);
+            checkParticleEntityCollision(particle.position, particle, checkedPositions, nearbyEntities);
             
             if (moveDist >= pathLength - 0.1f) {
                 // gate reached
                 // calculate next gate direction
                 var reachedGate = particle.nextGate;
-                var nextDirection = getGateExitDirection(particle.lastGate, particle.nextGate);
+                var gateOffset = particle.nextGate.subtract(particle.lastGate);
+                var lastDirection = new Vec3i(Math.clamp(gateOffset.getX(), -1, 1), 0, Math.clamp(gateOffset.getZ(), -1, 1));
+                
+                // the segment the particle came from knows the exit direction, unless the particle didn't follow one (e.g. when injected)
+                var lastSegment = gateGraph.getSegment(world, particle.lastGate, lastDirection);
+                var nextDirection = reachedGate.equals(lastSegment.target()) ? lastSegment.exitDirection() : getGateExitDirection(world, particle.lastGate, reachedGate);
+                
                 // try find next valid gate
-                var nextGate = findNextGateCached(reachedGate, nextDirection, particle.velocity);
+                var nextGate = gateGraph.getSegment(world, reachedGate, nextDirection).getTarget(particle.velocity);
                 
                 // no gate built / too slow
                 if (nextGate == null) {
@@ -90,8 +105,6 @@ public class AcceleratorParticleLogic {
                 }
                 
                 // check if curve is too strong (based on reached gate)
-                var gateOffset = particle.nextGate.subtract(particle.lastGate);
-                var lastDirection = new Vec3i(Math.clamp(gateOffset.getX(), -1, 1), 0, Math.clamp(gateOffset.getZ(), -1, 1));
                 var wasBend = !lastDirection.equals(nextDirection);
                 if (wasBend) {
                     
@@ -123,15 +136,17 @@ public class AcceleratorParticleLogic {
         entity.onParticleMoved(renderedTrail);
     }
     
-    private void checkParticleEntityCollision(Vec3d position, ActiveParticle particle, Set<BlockPos> alreadyChecked) {
+    // checks the entities of the path lookup that are in the block at position, in the same order a lookup of that block would return them
+    private void checkParticleEntityCollision(Vec3d position, ActiveParticle particle, Set<BlockPos> alreadyChecked, List<LivingEntity> nearbyEntities) {
         
         var blockPos = BlockPos.ofFloored(position);
         if (alreadyChecked.contains(blockPos)) return;
         alreadyChecked.add(blockPos);
         
-        var targets = world.getEntitiesByClass(LivingEntity.class, new Box(blockPos), elem -> elem.isAlive() && elem.isAttackable() && !elem.isSpectator());
+        var blockBox = new Box(blockPos);
         var remainingMomentum = particle.velocity;
-        for (var mob : targets) {
+        for (var mob : nearbyEntities) {
+            if (!mob.getBoundingBox().intersects(blockBox) || !isTargetable(mob)) continue;
             var usedMomentum = entity.handleParticleEntityCollision(blockPos, particle, remainingMomentum, mob);
             remainingMomentum -= usedMomentum;
             
@@ -156,13 +171,18 @@ public class AcceleratorParticleLogic {
         if (searchStart == null) searchStart = particle.lastGate;
         
         var remainingMomentum = particle.velocity;
+        if (searchDist < 1) return;
+        
+        // one lookup for the whole exit path, the entities are then checked block by block
+        var searchBox = new Box(searchStart.add(searchDirection)).union(new Box(searchStart.add(searchDirection.multiply(searchDist))));
+        var nearbyEntities = world.getEntitiesByClass(LivingEntity.class, searchBox, AcceleratorParticleLogic::isTargetable);
         
         for (int i = 1; i <= searchDist; i++) {
             var checkPos = searchStart.add(searchDirection.multiply(i));
+            var checkBox = new Box(checkPos);
             
-            var targets = world.getEntitiesByClass(LivingEntity.class, new Box(checkPos), elem -> elem.isAlive() && elem.isAttackable() && !elem.isSpectator());
-            
-            for (var mob : targets) {
+            for (var mob : nearbyEntities) {
+                if (!mob.getBoundingBox().intersects(checkBox) || !isTargetable(mob)) continue;
                 var usedMomentum = entity.handleParticleEntityCollision(checkPos, particle, remainingMomentum, mob);
                 remainingMomentum -= usedMomentum;
                 
@@ -185,9 +205,10 @@ public class AcceleratorParticleLogic {
     private boolean updateParticleCollision(Vec3d position, ActiveParticle particle) {
         
         var blockPos = new BlockPos((int) position.x, (int) position.y, (int) position.z);
-        if (activeParticles.containsKey(blockPos) && !activeParticles.get(blockPos).equals(this.pos)) {
+        var worldParticles = activeParticles.computeIfAbsent(world.getRegistryKey(), key -> new HashMap<>());
+        if (worldParticles.containsKey(blockPos) && !worldParticles.get(blockPos).equals(this.pos)) {
             // found collision
-            var secondControllerPos = activeParticles.get(blockPos);
+            var secondControllerPos = worldParticles.get(blockPos);
             
             if (!(world.getBlockEntity(secondControllerPos) instanceof AcceleratorControllerBlockEntity secondAccelerator) || secondAccelerator.getParticle() == null)
                 return false;
@@ -202,14 +223,18 @@ public class AcceleratorParticleLogic {
             return true;
         }
         
-        activeParticles.put(blockPos, this.pos);
+        worldParticles.put(blockPos, this.pos);
         return false;
         
     }
     
+    private static boolean isTargetable(LivingEntity target) {
+        return target.isAlive() && target.isAttackable() && !target.isSpectator();
+    }
+    
     // this assumes the next gate is a valid target for a particle coming from lastGate.
     // Returns a neighboring or diagonal direction
-    private Vec3i getGateExitDirection(BlockPos lastGate, BlockPos nextGate) {
+    static Vec3i getGateExitDirection(World world, BlockPos lastGate, BlockPos nextGate) {
         
         var incomingPath = nextGate.subtract(lastGate);
         var incomingStraight = incomingPath.getX() == 0 || incomingPath.getZ() == 0;
@@ -261,77 +286,45 @@ public class AcceleratorParticleLogic {
         return (float) (Math.sqrt(speed) / Oritech.CONFIG.bendFactor());
     }
     
-    @Nullable
-    private BlockPos findNextGateCached(BlockPos from, Vec3i direction, float speed) {
-        
-        var maxDist = getMaxGateDist(speed);
-        var key = new CompPair<>(from, direction);
-        
-        if (cachedGates.containsKey(key)) {
-            var result = cachedGates.get(key);
-            var dist = (int) result.toCenterPos().distanceTo(from.toCenterPos());
-            if (dist <= maxDist) return result;
-        }
-        
-        var candidate = findNextGate(from, direction, speed);
-        if (candidate != null) {
-            cachedGates.put(key, candidate);
-        }
-        
-        return candidate;
-        
-    }
-    
     // tries to find the next gate candidate, based on the starting gate
     // direction can be either straight or diagonal
     @Nullable
     public BlockPos findNextGate(BlockPos from, Vec3i direction, float speed) {
-        
         // longer empty areas only work at higher speeds
-        var maxDist = getMaxGateDist(speed);
-        
-        for (int i = 1; i <= maxDist; i++) {
-            var candidatePos = from.add(direction.multiply(i));
-            var candidateState = world.getBlockState(candidatePos);
-            if (candidateState.isAir()) continue;
-            
-            if (candidateState.getBlock().equals(BlockContent.ACCELERATOR_MOTOR) || candidateState.getBlock().equals(BlockContent.ACCELERATOR_SENSOR))
-                return candidatePos;
-            
-            if (!candidateState.getBlock().equals(BlockContent.ACCELERATOR_RING)) return null;
-            
-            // check if ring is facing source pos (from)
-            var candidateBent = candidateState.get(AcceleratorRingBlock.BENT);
-            var candidateFacing = candidateState.get(Properties.HORIZONTAL_FACING);
-            var candidateRedstone = candidateState.get(AcceleratorRingBlock.REDSTONE_STATE);
-            
-            var candidateBack = candidatePos.add(Geometry.getBackward(candidateFacing).multiply(i));
-            var candidateFront = candidatePos.add(Geometry.getForward(candidateFacing).multiply(i));
-            
-            // front can be bent
-            if (candidateBent == 1) candidateFront = candidateFront.add(Geometry.getLeft(candidateFacing).multiply(i));
-            if (candidateBent == 2) candidateFront = candidateFront.add(Geometry.getRight(candidateFacing).multiply(i));
-            
-            var isValid = candidateBack.equals(from) || candidateFront.equals(from);
+        return AcceleratorGateGraph.findSegment(world, from, direction, (int) getMaxGateDist(speed)).target();
+    }
+    
+    /**
+     * Follows the gate segments from the current position of the particle, assuming its speed doesn't change. The
+     * result starts with the next gate. If the gates lead back to the segment the particle is currently on, the path loops.
+     */
+    public PredictedPath predictPath(ActiveParticle particle, int maxGates) {
+        
+        var gates = new ArrayList<BlockPos>();
+        if (particle.nextGate == null || particle.lastGate == null) return new PredictedPath(gates, false);
+        
+        var lastGate = particle.lastGate;
+        var reachedGate = particle.nextGate;
+        gates.add(reachedGate);
+        
+        while (gates.size() < maxGates) {
+            var gateOffset = reachedGate.subtract(lastGate);
+            var lastDirection = new Vec3i(Math.clamp(gateOffset.getX(), -1, 1), 0, Math.clamp(gateOffset.getZ(), -1, 1));
+            var lastSegment = gateGraph.getSegment(world, lastGate, lastDirection);
+            var nextDirection = reachedGate.equals(lastSegment.target()) ? lastSegment.exitDirection() : getGateExitDirection(world, lastGate, reachedGate);
             
-            // check if redstone input is valid
-            if (!isValid && candidateRedstone != 3) {
-                candidateFront = candidatePos.add(Geometry.getForward(candidateFacing).multiply(i));    // reset front
-                if (candidateRedstone == 1) {
-                    candidateFront = candidateFront.add(Geometry.getLeft(candidateFacing).multiply(i));
-                } else if (candidateRedstone == 2) {
-                    candidateFront = candidateFront.add(Geometry.getRight(candidateFacing).multiply(i));
-                }
-                
-                isValid = candidateFront.equals(from);
-            }
+            var nextGate = gateGraph.getSegment(world, reachedGate, nextDirection).getTarget(particle.velocity);
+            if (nextGate == null) break;
             
-            if (isValid) return candidatePos;
+            if (reachedGate.equals(particle.lastGate) && nextGate.equals(particle.nextGate))
+                return new PredictedPath(gates, true);
             
+            gates.add(nextGate);
+            lastGate = reachedGate;
+            reachedGate = nextGate;
         }
         
-        return null;
-        
+        return new PredictedPath(gates, false);
     }
     
     // called on server tick end. Used for collision detection
@@ -339,36 +332,7 @@ public class AcceleratorParticleLogic {
         activeParticles.clear();
     }
     
-    // remove caches that have either source or target as pos. Called from gate blocks
-    public static void resetCachedGate(BlockPos pos) {
-        var toRemove = cachedGates.entrySet().stream().filter(elem -> elem.getKey().getLeft().equals(pos) || elem.getValue().equals(pos)).map(Map.Entry::getKey).toList();
-        toRemove.forEach(cachedGates::remove);
-    }
-    
-    public static void resetNearbyCache(BlockPos pos) {
-        var toRemove = cachedGates.keySet().stream().filter(blockPos -> blockPos.getLeft().getManhattanDistance(pos) < Oritech.CONFIG.maxGateDist() + 1).toList();
-        toRemove.forEach(cachedGates::remove);
-    }
-    
-    public static final class CompPair<A, B> extends Pair<A, B> {
-        
-        public CompPair(A left, B right) {
-            super(left, right);
-        }
-        
-        @Override
-        public int hashCode() {
-            return (getLeft() == null ? 0 : getLeft().hashCode()) ^ (getRight() == null ? 0 : getRight().hashCode());
-        }
-        
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof CompPair<?, ?> p)) {
-                return false;
-            }
-            
-            return Objects.equals(p.getLeft(), getLeft()) && Objects.equals(p.getRight(), getRight());
-        }
+    public record PredictedPath(List<BlockPos> gates, boolean loops) {
     }
     
     public static final class ActiveParticle {
@@ -0,0 +1,98 @@
+package rearth.oritech.block.entity.accelerator;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The predicted movement of a particle along the upcoming gates, at a fixed speed. The server sends the path once, and
+ * clients move the particle along it on their own each tick. The server moves an identical copy, and only sends a new
+ * path once the particle moved too far away from it (e.g. because it was accelerated), or the path ended.
+ * <p>
+ * A looping path continues at the first gate after reaching the last one. This is used for closed rings, where the
+ * last gate is the one the particle came from when the path was created.
+ */
+public class AcceleratorParticlePath {
+    
+    private final List<Vec3d> points;
+    private final boolean loops;
+    private final float speed;
+    private final double loopLength;
+    
+    private Vec3d position;
+    private int nextPoint;
+    private boolean finished;
+    
+    public AcceleratorParticlePath(Vec3d start, List<BlockPos> gates, boolean loops, float speed) {
+        this.points = gates.stream().map(BlockPos::toCenterPos).toList();
+        this.loops = loops && !points.isEmpty();
+        this.speed = speed;
+        this.position = start;
+        this.finished = points.isEmpty();
+        
+        var length = 0d;
+        for (int i = 0; i < points.size(); i++)
+            length += points.get(i).distanceTo(points.get((i + 1) % points.size()));
+        this.loopLength = length;
+    }
+    
+    /**
+     * Moves the particle by the distance it travels in one tick.
+     *
+     * @return the positions passed in this tick, starting at the previous position
+     */
+    public List<Vec3d> advance() {
+        var trail = new ArrayList<Vec3d>();
+        trail.add(position);
+        if (finished) return trail;
+        
+        var availableDistance = speed / 20d;
+        while (availableDistance > 0.001) {
+            var target = points.get(nextPoint);
+            var pathLength = target.distanceTo(position);
+            
+            if (pathLength > availableDistance) {
+                position = position.add(target.subtract(position).normalize().multiply(availableDistance));
+                trail.add(position);
+                break;
+            }
+            
+            position = target;
+            availableDistance -= pathLength;
+            trail.add(position);
+            nextPoint++;
+            
+            if (nextPoint >= points.size()) {
+                if (!loops) {
+                    finished = true;
+                    break;
+                }
+                
+                if (loopLength <= 0.001) {
+                    finished = true;
+                    break;
+                }
+                
+                // skip full rounds, they would only repeat the trail
+                nextPoint = 0;
+                availableDistance %= loopLength;
+            }
+        }
+        
+        return trail;
+    }
+    
+    public Vec3d getPosition() {
+        return position;
+    }
+    
+    public float getSpeed() {
+        return speed;
+    }
+    
+    public boolean isFinished() {
+        return finished;
+    }
+}
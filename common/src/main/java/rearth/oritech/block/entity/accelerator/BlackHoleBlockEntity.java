@@ -1,12 +1,20 @@
 package rearth.oritech.block.entity.accelerator;
 
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityTicker;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
+import net.minecraft.world.event.BlockPositionSource;
+import net.minecraft.world.event.GameEvent;
+import net.minecraft.world.event.PositionSource;
+import net.minecraft.world.event.listener.GameEventListener;
 import rearth.oritech.Oritech;
 import rearth.oritech.block.blocks.accelerator.AcceleratorPassthroughBlock;
 import rearth.oritech.client.init.ParticleContent;
@@ -16,10 +24,10 @@ import rearth.oritech.init.TagContent;
 import rearth.oritech.network.NetworkContent;
 
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 
-public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTicker<BlackHoleBlockEntity> {
+public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTicker<BlackHoleBlockEntity>, GameEventListener.Holder<BlackHoleBlockEntity.BlockPlacementListener> {
     public BlockPos currentlyPullingFrom;
     public BlockState currentlyPulling;
     public long pullingStartedAt;
@@ -31,6 +39,13 @@ public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTick
     // cache for outgoing hits
     private final Map<BlockPos, ParticleCollectorBlockEntity> cachedCollectors = new HashMap<>();
     
+    // the search continues where the last pulled block was found, as everything closer was already checked.
+    // Placing a block in range restarts it
+    private Iterator<BlockPos> searchCursor;
+    // sections that have no pullable block in their palette are skipped during a search
+    private final Long2BooleanOpenHashMap pullableSections = new Long2BooleanOpenHashMap();
+    private final BlockPlacementListener placementListener = new BlockPlacementListener();
+    
     public BlackHoleBlockEntity(BlockPos pos, BlockState state) {
         super(BlockEntitiesContent.BLACK_HOLE_ENTITY, pos, state);
     }
@@ -47,10 +62,18 @@ public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTick
         if (currentlyPullingFrom != null) return;
 
         int pullRange = Oritech.CONFIG.pullRange();
-
-        for (var candidate : BlockPos.iterateOutwards(pos, pullRange, pullRange, pullRange)) {
+        
+        if (searchCursor == null) {
+            searchCursor = BlockPos.iterateOutwards(pos, pullRange, pullRange, pullRange).iterator();
+            pullableSections.clear();
+        }
+        
+        while (searchCursor.hasNext()) {
+            var candidate = searchCursor.next().toImmutable();
+            if (candidate.equals(pos) || !isSectionPullable(candidate)) continue;
+            
             var candidateState = world.getBlockState(candidate);
-            if (candidate.equals(pos) || candidateState.isAir() || candidateState.isLiquid() || candidateState.getBlock().equals(Blocks.MOVING_PISTON) || candidateState.getBlock().equals(BlockContent.BLACK_HOLE_BLOCK)) continue;
+            if (!canPull(candidateState)) continue;
             
             currentlyPullingFrom = candidate;
             currentlyPulling = candidateState;
@@ -63,9 +86,32 @@ public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTick
         
         if (currentlyPullingFrom == null) {
             waitTicks = Oritech.CONFIG.idleWaitTicks();
+            searchCursor = null;
         }
     }
     
+    private static boolean canPull(BlockState state) {
+        return !state.isAir() && !state.isLiquid() && !state.getBlock().equals(Blocks.MOVING_PISTON) && !state.getBlock().equals(BlockContent.BLACK_HOLE_BLOCK);
+    }
+    
+    private boolean isSectionPullable(BlockPos candidate) {
+        if (world.isOutOfHeightLimit(candidate)) return false;
+        
+        var sectionKey = ChunkSectionPos.toLong(candidate);
+        if (pullableSections.containsKey(sectionKey)) return pullableSections.get(sectionKey);
+        
+        var chunk = world.getChunk(ChunkSectionPos.getSectionCoord(candidate.getX()), ChunkSectionPos.getSectionCoord(candidate.getZ()));
+        var section = chunk.getSection(chunk.getSectionIndex(candidate.getY()));
+        var pullable = !section.isEmpty() && section.hasAny(BlackHoleBlockEntity::canPull);
+        pullableSections.put(sectionKey, pullable);
+        return pullable;
+    }
+    
+    @Override
+    public BlockPlacementListener getEventListener() {
+        return placementListener;
+    }
+    
     private void onPullingFinished() {
         var from = currentlyPullingFrom;
         var pulledDir = Vec3d.of(pos.subtract(from));
@@ -125,15 +171,15 @@ public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTick
     
     public static BlockPos basicRaycast(Vec3d from, Vec3d direction, int range, World world) {
         
-        var checkedPositions = new HashSet<BlockPos>();
+        BlockPos lastChecked = null;
         
         for (float i = 0; i < range; i += 0.3f) {
             var to = from.add(direction.multiply(i));
             var targetBlockPos = BlockPos.ofFloored(to);
             
-            // avoid double checks
-            if (checkedPositions.contains(targetBlockPos)) continue;
-            checkedPositions.add(targetBlockPos);
+            // avoid double checks. The ray is straight, so a position can only repeat right after itself
+            if (targetBlockPos.equals(lastChecked)) continue;
+            lastChecked = targetBlockPos;
             
             var targetState = world.getBlockState(targetBlockPos);
             if (!canPassThrough(targetState, targetBlockPos)) return targetBlockPos;
@@ -155,4 +201,34 @@ public class BlackHoleBlockEntity extends BlockEntity implements BlockEntityTick
         this.currentlyPulling = world.getBlockState(packet.from());
     }
     
+    // restarts the search when a block is placed in range, as it may be closer than the search cursor
+    public class BlockPlacementListener implements GameEventListener {
+        
+        private final PositionSource positionSource = new BlockPositionSource(pos);
+        
+        @Override
+        public PositionSource getPositionSource() {
+            return positionSource;
+        }
+        
+        @Override
+        public int getRange() {
+            return Oritech.CONFIG.pullRange();
+        }
+        
+        @Override
+        public boolean listen(ServerWorld world, RegistryEntry<GameEvent> event, GameEvent.Emitter emitter, Vec3d emitterPos) {
+            if (!event.matchesKey(GameEvent.BLOCK_PLACE.registryKey()) && !event.matchesKey(GameEvent.BLOCK_CHANGE.registryKey()))
+                return false;
+            
+            var offset = BlockPos.ofFloored(emitterPos).subtract(pos);
+            var range = getRange();
+            if (Math.abs(offset.getX()) > range || Math.abs(offset.getY()) > range || Math.abs(offset.getZ()) > range)
+                return false;
+            
+            searchCursor = null;
+            return true;
+        }
+    }
+    
 }
@@ -224,7 +224,7 @@ public class SteamEngineEntity extends FluidMultiblockGeneratorBlockEntity {
     protected void sendNetworkEntry() {
         super.sendNetworkEntry();
         var data = getBaseAddonData();
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.SteamEnginePacket(pos, data.speed(), data.efficiency(), waterStorage.amount, energyProducedTick));
+        sendNetworkPacket(new NetworkContent.SteamEnginePacket(pos, data.speed(), data.efficiency(), waterStorage.amount, energyProducedTick));
         energyProducedTick = 0;
     }
     
@@ -3,6 +3,8 @@ package rearth.oritech.block.entity.pipes;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Pair;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
@@ -14,18 +16,14 @@ import rearth.oritech.init.BlockEntitiesContent;
 import rearth.oritech.util.energy.EnergyApi;
 import rearth.oritech.util.energy.containers.SimpleEnergyStorage;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.*;
 
 public class EnergyPipeInterfaceEntity extends GenericPipeInterfaceEntity implements EnergyApi.BlockProvider {
     
     private final SimpleEnergyStorage energyStorage;
     private final boolean isSuperConductor;
     
-    private List<EnergyApi.EnergyContainer> cachedTargets = List.of();
-    private int cacheHash;
+    private EnergyNetwork registeredNetwork;
     
     public EnergyPipeInterfaceEntity(BlockPos pos, BlockState state) {
         super(BlockEntitiesContent.ENERGY_PIPE_ENTITY, pos, state);
@@ -59,42 +57,23 @@ public class EnergyPipeInterfaceEntity extends GenericPipeInterfaceEntity implem
     
     @Override
     public void tick(World world, BlockPos pos, BlockState state, GenericPipeInterfaceEntity blockEntity) {
-        // if energy is available
-        // gather all connection targets supporting insertion
-        // shuffle em
-        // insert until no more energy is available
+        // all interfaces of a network share one energy network, which is ticked by the first interface ticking each world tick
         
-        if (world.isClient || energyStorage.getAmount() <= 0) return;
+        if (world.isClient) return;
         
         var dataSource = isSuperConductor ? SuperConductorBlock.SUPERCONDUCTOR_DATA : EnergyPipeBlock.ENERGY_PIPE_DATA;
         
         var data = dataSource.getOrDefault(world.getRegistryKey().getValue(), new PipeNetworkData());
-        var targets = findNetworkTargets(pos, data);
+        var netID = findNetworkId(world, pos, data);
+        if (netID == -1) return;
         
-        if (targets == null) return;    // this should never happen
-        
-        var targetHash = targets.hashCode();
-        
-        List<EnergyApi.EnergyContainer> energyStorages;
-        
-        if (this.cacheHash == targetHash) {
-            energyStorages = this.cachedTargets;
-        } else {
-            energyStorages = targets.stream()
-                               .map(target -> EnergyApi.BLOCK.find(world, target.getLeft(), target.getRight()))
-                               .filter(obj -> Objects.nonNull(obj) && obj.supportsInsertion())
-                               .collect(Collectors.toList());
-            this.cachedTargets = energyStorages;
-            this.cacheHash = targetHash;
-        }
-        
-        Collections.shuffle(energyStorages);
-        
-        for (var targetStorage : energyStorages) {
-            if (energyStorage.getAmount() <= 0) break;
-            EnergyApi.transfer(energyStorage, targetStorage, Long.MAX_VALUE, false);
+        var network = data.<EnergyNetwork>getNetworkCache(netID, EnergyNetwork::new);
+        if (network != registeredNetwork) {
+            network.sources.add(this);
+            registeredNetwork = network;
         }
         
+        network.tick(world, data, netID);
     }
     
     @Override
@@ -102,4 +81,111 @@ public class EnergyPipeInterfaceEntity extends GenericPipeInterfaceEntity implem
         if (this.world != null)
             world.markDirty(pos);
     }
+    
+    /**
+     * Distributes the energy of all interface buffers of one network in a single pass.
+     * Targets are served round-robin, starting one target later each tick.
+     */
+    private static final class EnergyNetwork {
+        
+        private final List<EnergyPipeInterfaceEntity> sources = new ArrayList<>();
+        private List<TargetLookup> targets = List.of();
+        private Map<BlockPos, EnergyApi.BlockLookup> lookups = Map.of();
+        private int revision = -1;
+        private long lastTick = -1;
+        private int startIndex;
+        
+        private void tick(World world, PipeNetworkData data, int netID) {
+            
+            var time = world.getTime();
+            if (lastTick == time) return;
+            lastTick = time;
+            
+            // after a network change (e.g. a split), sources that are now part of another network are dropped right away,
+            // instead of only when they tick again. They register with their new network on their next tick
+            var networkRevision = data.getNetworkRevision(netID);
+            if (revision != networkRevision) {
+                for (var source : sources) {
+                    if (source.registeredNetwork == this && findNetworkId(world, source.getPos(), data) != netID)
+                        source.registeredNetwork = null;
+                }
+                
+                updateTargets(world, data, netID);
+                revision = networkRevision;
+            }
+            
+            // interfaces that were unloaded, removed or moved to another network are no longer part of this one
+            var supply = 0L;
+            for (var iterator = sources.iterator(); iterator.hasNext(); ) {
+                var source = iterator.next();
+                if (source.isRemoved() || source.registeredNetwork != this) {
+                    iterator.remove();
+                    continue;
+                }
+                supply += source.energyStorage.getAmount();
+            }
+            
+            if (supply <= 0) return;
+            
+            var targetCount = targets.size();
+            if (targetCount == 0) return;
+            
+            startIndex = (startIndex + 1) % targetCount;
+            var remaining = supply;
+            
+            try (var batch = EnergyApi.BLOCK.openBatch()) {
+                for (int i = 0; i < targetCount && remaining > 0; i++) {
+                    var targetLookup = targets.get((startIndex + i) % targetCount);
+                    var target = targetLookup.lookup().find(targetLookup.side());
+                    if (target == null || !target.supportsInsertion()) continue;
+                    
+                    // targets may limit the amount per insertion. Each interface used to offer its own buffer, so allow one offer per source
+                    var inserted = 0L;
+                    for (int offer = 0; offer < sources.size() && remaining > 0; offer++) {
+                        var accepted = target.insert(remaining, batch);
+                        if (accepted <= 0) break;
+                        inserted += accepted;
+                        remaining -= accepted;
+                    }
+                    
+                    if (inserted > 0) target.update();
+                }
+            }
+            
+            // take the distributed energy out of the interface buffers
+            var moved = supply - remaining;
+            for (var source : sources) {
+                if (moved <= 0) break;
+                var extracted = source.energyStorage.extract(moved, false);
+                if (extracted <= 0) continue;
+                moved -= extracted;
+                source.energyStorage.update();
+                source.markDirty();
+            }
+        }
+        
+        // lookups of positions that are still part of the network are kept
+        private void updateTargets(World world, PipeNetworkData data, int netID) {
+            var interfaces = Objects.requireNonNullElse(data.getNetworkInterfaces(netID), Set.<Pair<BlockPos, Direction>>of());
+            var newTargets = new ArrayList<TargetLookup>(interfaces.size());
+            var newLookups = new HashMap<BlockPos, EnergyApi.BlockLookup>();
+            
+            for (var target : interfaces) {
+                var targetPos = target.getLeft();
+                var lookup = newLookups.get(targetPos);
+                if (lookup == null) {
+                    lookup = lookups.get(targetPos);
+                    if (lookup == null) lookup = EnergyApi.BLOCK.createLookup((ServerWorld) world, targetPos);
+                    newLookups.put(targetPos, lookup);
+                }
+                newTargets.add(new TargetLookup(lookup, target.getRight()));
+            }
+            
+            targets = newTargets;
+            lookups = newLookups;
+        }
+    }
+    
+    private record TargetLookup(EnergyApi.BlockLookup lookup, Direction side) {
+    }
 }
@@ -6,18 +6,9 @@ import net.minecraft.util.math.BlockPos;
 
 public abstract class ExtractablePipeInterfaceEntity extends GenericPipeInterfaceEntity {
 
-	protected int filteredTargetsNetHash;
+	protected int filteredTargetsRevision = -1;
 
 	public ExtractablePipeInterfaceEntity(BlockEntityType<?> type, BlockPos pos, BlockState state) {
 		super(type, pos, state);
 	}
-
-	/**
-	 * Invalidates the target cache of this block entity
-	 * This is used to force the block entity to recalculate the targets
-	 * Used when extraction is toggled
-	 */
-	public void invalidateTargetCache() {
-		filteredTargetsNetHash = 0;
-	}
 }
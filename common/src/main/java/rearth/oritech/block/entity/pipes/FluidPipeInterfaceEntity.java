@@ -83,12 +83,12 @@ public class FluidPipeInterfaceEntity extends ExtractablePipeInterfaceEntity imp
         // one transaction for each side
         if (block.isExtractable(state) && fluidStorage.amount < fluidStorage.getCapacity()) {
             
-            var sources = data.machineInterfaces.getOrDefault(pos, new HashSet<>());
+            var sources = data.getMachineDirections(pos);
             
-            for (var sourcePos : sources) {
-                var offset = pos.subtract(sourcePos);
-                var direction = Direction.fromVector(offset.getX(), offset.getY(), offset.getZ());
-                if (!block.isSideExtractable(state, direction.getOpposite())) continue;
+            for (var side : Direction.values()) {
+                if (!PipeNetworkData.hasDirection(sources, side) || !block.isSideExtractable(state, side)) continue;
+                var sourcePos = pos.offset(side);
+                var direction = side.getOpposite();
                 var sourceContainer = findFromCache(world, sourcePos, direction);
                 if (sourceContainer == null || !sourceContainer.supportsExtraction()) continue;
                 
@@ -129,16 +129,16 @@ public class FluidPipeInterfaceEntity extends ExtractablePipeInterfaceEntity imp
             return;
         }
         
-        var targets = findNetworkTargets(pos, data);
+        var targets = findNetworkTargets(world, pos, data);
         
         if (targets == null) {
             System.err.println("Yeah your pipe network likely is too long");
             return;
         }
         
-        var netHash = targets.hashCode();
+        var revision = data.getNetworkRevision(data.getNetworkId(pos));
         
-        if (netHash != filteredTargetsNetHash) {
+        if (revision != filteredTargetsRevision) {
             filteredFluidTargetsCached = targets.stream()
                                            .filter(target -> {
                                                var direction = target.getRight();
@@ -153,7 +153,7 @@ public class FluidPipeInterfaceEntity extends ExtractablePipeInterfaceEntity imp
                                            .filter(obj -> Objects.nonNull(obj) && obj.supportsInsertion())
                                            .collect(Collectors.toList());
             
-            filteredTargetsNetHash = netHash;
+            filteredTargetsRevision = revision;
         }
         
         Collections.shuffle(filteredFluidTargetsCached);
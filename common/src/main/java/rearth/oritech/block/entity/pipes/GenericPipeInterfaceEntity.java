@@ -1,5 +1,8 @@
 package rearth.oritech.block.entity.pipes;
 
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.*;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityTicker;
@@ -9,7 +12,6 @@ import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.util.Pair;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
-import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.PersistentState;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
@@ -18,14 +20,10 @@ import rearth.oritech.block.blocks.pipes.GenericPipeBlock;
 import rearth.oritech.block.entity.interaction.PipeBoosterBlockEntity;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static rearth.oritech.block.blocks.pipes.GenericPipeBlock.NO_CONNECTION;
+import java.util.function.Supplier;
 
 public abstract class GenericPipeInterfaceEntity extends BlockEntity implements BlockEntityTicker<GenericPipeInterfaceEntity> {
     
-    public static final int MAX_SEARCH_COUNT = 2048;
-    
     public BlockPos connectedBooster = BlockPos.ORIGIN;
 
     private PipeBoosterBlockEntity cachedBooster;
@@ -74,121 +72,292 @@ public abstract class GenericPipeInterfaceEntity extends BlockEntity implements
     public static void addNode(World world, BlockPos pos, boolean isInterface, BlockState newState, PipeNetworkData data) {
         Oritech.LOGGER.debug("registering/updating node: " + pos);
 
-        data.pipes.add(pos);
-        var connectedMachines = new HashSet<BlockPos>(6);
+        var node = pos.asLong();
+
+        // data loaded without networks restores them on first use. This has to happen before the node is added
+        if (data.networksPending) {
+            restoreNetwork(world, node, data);
+            for (var direction : Direction.values())
+                restoreNetwork(world, BlockPos.offset(node, direction), data);
+        }
+
+        var isUpdate = !data.pipes.add(node) && data.pipeNetworks.containsKey(data.pipeNetworkLinks.get(node));
+        var connectedMachines = 0;
         var block = (GenericPipeBlock) newState.getBlock();
         for (var neighbor : Direction.values()) {
-            var neighborPos = pos.offset(neighbor);
-            var neighborMap = data.machinePipeNeighbors.getOrDefault(neighborPos, new HashSet<>());
+            var neighborPos = BlockPos.offset(node, neighbor);
             if (block.hasMachineInDirection(neighbor, world, pos, block.apiValidationFunction())) {
                 if (block.isConnectingInDirection(newState, neighbor, false))
-                    connectedMachines.add(pos.offset(neighbor));
+                    connectedMachines |= PipeNetworkData.directionBit(neighbor);
 
-                neighborMap.add(neighbor.getOpposite());
+                data.addMachinePipeNeighbor(neighborPos, neighbor.getOpposite());
             } else {
-                neighborMap.remove(neighbor.getOpposite());
+                data.removeMachinePipeNeighbor(neighborPos, neighbor.getOpposite());
             }
+        }
 
-            if (!neighborMap.isEmpty()) data.machinePipeNeighbors.put(neighborPos, neighborMap);
-            else data.machinePipeNeighbors.remove(neighborPos);
+        // new nodes start out as their own network, and get joined with their neighbors below
+        var netID = getOrCreateNetwork(node, data);
+        var interfaces = data.pipeNetworkInterfaces.computeIfAbsent(netID, id -> new HashSet<>());
+
+        var oldMachines = data.machineInterfaces.remove(node);
+        if (oldMachines != 0) interfaces.removeAll(getInterfaces(node, oldMachines));
+
+        if (isInterface && connectedMachines != 0) {
+            data.machineInterfaces.put(node, (byte) connectedMachines);
+            interfaces.addAll(getInterfaces(node, connectedMachines));
         }
 
-        if (isInterface) {
-            data.machineInterfaces.put(pos, connectedMachines);
-        } else {
-            data.machineInterfaces.remove(pos);
+        // an existing node may have lost connections, which can split its network
+        if (isUpdate) {
+            var starts = new LongArrayList(7);
+            starts.add(node);
+            for (var direction : Direction.values()) {
+                var neighborPos = pos.offset(direction);
+                if (data.pipeNetworkLinks.get(neighborPos.asLong()) != netID) continue;
+                if (block.isConnectingInDirection(newState, direction, false)) continue;
+                var neighborState = world.getBlockState(neighborPos);
+                if (neighborState.getBlock() instanceof GenericPipeBlock neighborBlock && neighborBlock.isConnectingInDirection(neighborState, direction.getOpposite(), false))
+                    continue;
+                starts.add(neighborPos.asLong());
+            }
+
+            if (starts.size() > 1)
+                splitNetwork(world, netID, starts, node, newState, data);
         }
 
-        updateFromNode(world, pos, data);
+        // join all networks this node is connecting to
+        for (var direction : Direction.values()) {
+            if (!block.isConnectingInDirection(newState, direction, false)) continue;
+            var neighborPos = BlockPos.offset(node, direction);
+            if (!data.pipes.contains(neighborPos)) continue;
+
+            var ownNetwork = data.pipeNetworkLinks.get(node);
+            var neighborNetwork = getOrCreateNetwork(neighborPos, data);
+            if (ownNetwork != neighborNetwork)
+                mergeNetworks(ownNetwork, neighborNetwork, data);
+        }
+
+        var resultNetwork = data.pipeNetworkLinks.get(node);
+        data.markNetworkChanged(resultNetwork);
+        Oritech.LOGGER.debug("Network: " + resultNetwork + " | Nodes: " + data.pipeNetworks.get(resultNetwork).size());
+
+        data.markDirty();
     }
 
     public static void removeNode(World world, BlockPos pos, boolean wasInterface, BlockState oldState, PipeNetworkData data) {
         Oritech.LOGGER.debug("removing node: " + pos + " | " + wasInterface);
 
-        var oldNetwork = data.pipeNetworkLinks.getOrDefault(pos, -1);
+        var node = pos.asLong();
+        var oldNetwork = data.pipeNetworkLinks.remove(node);
 
-        data.pipes.remove(pos);
-        if (wasInterface) data.machineInterfaces.remove(pos);
+        data.pipes.remove(node);
+        var oldMachines = data.machineInterfaces.remove(node);
 
         removeStaleMachinePipeNeighbors(pos, data);
 
-        data.pipeNetworks.remove(oldNetwork);
-        data.pipeNetworkInterfaces.remove(oldNetwork);
-        data.pipeNetworkLinks.remove(pos);
-
-        // re-calculate old network, is either shorter or split into multiple ones (starting from ones this block was connected to)
-        var block = (GenericPipeBlock) oldState.getBlock();
-        if (oldNetwork != -1) {
-            if (oldState.get(block.getNorthProperty()) != NO_CONNECTION)
-                updateFromNode(world, pos.north(), data);
-            if (oldState.get(block.getSouthProperty()) != NO_CONNECTION)
-                updateFromNode(world, pos.south(), data);
-            if (oldState.get(block.getEastProperty()) != NO_CONNECTION)
-                updateFromNode(world, pos.east(), data);
-            if (oldState.get(block.getWestProperty()) != NO_CONNECTION)
-                updateFromNode(world, pos.west(), data);
-            if (oldState.get(block.getUpProperty()) != NO_CONNECTION)
-                updateFromNode(world, pos.up(), data);
-            if (oldState.get(block.getDownProperty()) != NO_CONNECTION)
-                updateFromNode(world, pos.down(), data);
+        var nodes = data.pipeNetworks.get(oldNetwork);
+        if (nodes != null) {
+            nodes.remove(node);
+            var interfaces = data.pipeNetworkInterfaces.get(oldNetwork);
+            if (interfaces != null && oldMachines != 0) interfaces.removeAll(getInterfaces(node, oldMachines));
+
+            if (nodes.isEmpty()) {
+                data.removeNetwork(oldNetwork);
+            } else {
+                data.markNetworkChanged(oldNetwork);
+
+                // old network is either shorter or split into multiple ones (starting from ones this block was connected to)
+                var block = (GenericPipeBlock) oldState.getBlock();
+                var starts = new LongArrayList(6);
+                for (var direction : Direction.values()) {
+                    var neighborPos = BlockPos.offset(node, direction);
+                    if (block.isConnectingInDirection(oldState, direction, false) && data.pipeNetworkLinks.get(neighborPos) == oldNetwork)
+                        starts.add(neighborPos);
+                }
+
+                if (starts.size() > 1)
+                    splitNetwork(world, oldNetwork, starts, node, null, data);
+            }
         }
 
         data.markDirty();
     }
 
-    private static void updateFromNode(World world, BlockPos pos, PipeNetworkData data) {
-
-        var searchInstance = new FloodFillSearch(pos, data.pipes, world);
-        var foundNetwork = new HashSet<>(searchInstance.complete());
-        var foundMachines = findConnectedMachines(foundNetwork, data);
+    /**
+     * Returns the network of the given node. If the node is not linked to any existing network,
+     * a new network only containing this node is created.
+     *
+     * @param node position of the pipe node, as long
+     * @param data network data
+     * @return the id of the network
+     */
+    private static int getOrCreateNetwork(long node, PipeNetworkData data) {
+        var netID = data.pipeNetworkLinks.get(node);
+        if (data.pipeNetworks.containsKey(netID)) return netID;
 
-        Oritech.LOGGER.debug("Nodes:    " + foundNetwork.size() + " | " + foundNetwork);
-        Oritech.LOGGER.debug("Machines: " + foundMachines.size() + " | " + foundMachines.stream().map(elem -> elem.getLeft() + ":" + elem.getRight()).toList());
+        var network = new LongOpenHashSet();
+        network.add(node);
+        netID = data.createNetworkId();
 
-        var netID = foundNetwork.hashCode();
-        data.pipeNetworks.put(netID, foundNetwork);
-        data.pipeNetworkInterfaces.put(netID, foundMachines);
+        data.pipeNetworks.put(netID, network);
+        data.pipeNetworkInterfaces.put(netID, findConnectedMachines(network, data));
+        data.pipeNetworkLinks.put(node, netID);
+        data.markNetworkChanged(netID);
 
-        // these networks will be replaced, since these nodes now belong to the new network
-        var networksToRemove = new HashSet<Integer>();
+        return netID;
+    }
 
-        for (var node : foundNetwork) {
-            networksToRemove.add(data.pipeNetworkLinks.getOrDefault(node, -1));
-            data.pipeNetworkLinks.put(node, netID);
+    /**
+     * Joins two networks. Only the nodes of the smaller network are re-linked, so each node
+     * is moved a logarithmic amount of times at most while a network grows.
+     *
+     * @return the id of the joined network
+     */
+    private static int mergeNetworks(int first, int second, PipeNetworkData data) {
+        var target = first;
+        var source = second;
+        if (data.pipeNetworks.get(first).size() < data.pipeNetworks.get(second).size()) {
+            target = second;
+            source = first;
         }
 
-        networksToRemove.stream().filter(i -> i != -1 && i != netID).forEach(i -> {
-            data.pipeNetworks.remove(i);
-            data.pipeNetworkInterfaces.remove(i);
-        });
+        var sourceNodes = data.pipeNetworks.get(source);
+        var sourceInterfaces = data.pipeNetworkInterfaces.get(source);
+        data.removeNetwork(source);
 
-        data.markDirty();
+        for (var iterator = sourceNodes.iterator(); iterator.hasNext(); )
+            data.pipeNetworkLinks.put(iterator.nextLong(), target);
+
+        data.pipeNetworks.get(target).addAll(sourceNodes);
+        if (sourceInterfaces != null)
+            data.pipeNetworkInterfaces.computeIfAbsent(target, id -> new HashSet<>()).addAll(sourceInterfaces);
+        data.markNetworkChanged(target);
+
+        Oritech.LOGGER.debug("merged network " + source + " into " + target);
+
+        return target;
+    }
+
+    /**
+     * Checks whether the given start nodes of a network are still connected to each other, and moves all parts
+     * that got disconnected to new networks. Only the detached parts are fully explored.
+     *
+     * @param world        the world
+     * @param netID        the network containing all start nodes
+     * @param starts       nodes to start the search from
+     * @param changedPos   position of the node that was changed
+     * @param changedState new state of the changed node if it is not placed in the world yet, may be null
+     * @param data         network data
+     */
+    private static void splitNetwork(World world, int netID, LongList starts, long changedPos, @Nullable BlockState changedState, PipeNetworkData data) {
+
+        var detached = new SplitSearch(world, netID, starts, changedPos, changedState, data).complete();
+        if (detached.isEmpty()) return;
+        data.markNetworkChanged(netID);
+
+        var remaining = data.pipeNetworks.get(netID);
+        var remainingInterfaces = data.pipeNetworkInterfaces.computeIfAbsent(netID, id -> new HashSet<>());
+
+        for (var network : detached) {
+            remaining.removeAll(network);
+
+            var foundMachines = findConnectedMachines(network, data);
+            remainingInterfaces.removeAll(foundMachines);
+
+            var newID = data.createNetworkId();
+            data.pipeNetworks.put(newID, network);
+            data.pipeNetworkInterfaces.put(newID, foundMachines);
+            data.markNetworkChanged(newID);
+            for (var iterator = network.iterator(); iterator.hasNext(); )
+                data.pipeNetworkLinks.put(iterator.nextLong(), newID);
+
+            Oritech.LOGGER.debug("split network " + newID + " from " + netID + " | Nodes: " + network.size());
+        }
     }
 
-    private static Set<Pair<BlockPos, Direction>> findConnectedMachines(Set<BlockPos> network, PipeNetworkData data) {
+    private static Set<Pair<BlockPos, Direction>> findConnectedMachines(LongSet network, PipeNetworkData data) {
 
         var res = new HashSet<Pair<BlockPos, Direction>>();
 
-        for (var node : network) {
-            if (data.machineInterfaces.containsKey(node)) {
-                for (var machinePos : data.machineInterfaces.get(node)) {
-                    var offset = machinePos.subtract(node);
-                    var direction = Direction.fromVector(offset.getX(), offset.getY(), offset.getZ()).getOpposite();
-                    res.add(new Pair<>(machinePos, direction));
-                }
-            }
+        for (var iterator = network.iterator(); iterator.hasNext(); ) {
+            var node = iterator.nextLong();
+            var machines = data.machineInterfaces.get(node);
+            if (machines != 0)
+                res.addAll(getInterfaces(node, machines));
         }
 
         return res;
     }
 
-    public static Set<Pair<BlockPos, Direction>> findNetworkTargets(BlockPos from, PipeNetworkData data) {
-        var connectedNetwork = data.pipeNetworkLinks.getOrDefault(from, -1);
+    // converts a direction mask of connected machines to (machine position, side of the machine) pairs
+    private static List<Pair<BlockPos, Direction>> getInterfaces(long node, int machines) {
+
+        var res = new ArrayList<Pair<BlockPos, Direction>>(Integer.bitCount(machines));
+
+        for (var direction : Direction.values()) {
+            if (!PipeNetworkData.hasDirection(machines, direction)) continue;
+            res.add(new Pair<>(BlockPos.fromLong(BlockPos.offset(node, direction)), direction.getOpposite()));
+        }
+
+        return res;
+    }
+
+    public static Set<Pair<BlockPos, Direction>> findNetworkTargets(World world, BlockPos from, PipeNetworkData data) {
+        var connectedNetwork = findNetworkId(world, from, data);
         if (connectedNetwork == -1) return new HashSet<>();
 
         return data.pipeNetworkInterfaces.get(connectedNetwork);
     }
 
+    /**
+     * Same as {@link PipeNetworkData#getNetworkId(BlockPos)}, but restores the network of the pipe first if
+     * it was not saved.
+     *
+     * @param world the world
+     * @param pos   the pipe position
+     * @param data  network data
+     * @return the id of the network the pipe belongs to, or -1 if it is not part of any network
+     */
+    public static int findNetworkId(World world, BlockPos pos, PipeNetworkData data) {
+        if (data.networksPending) restoreNetwork(world, pos.asLong(), data);
+        return data.getNetworkId(pos);
+    }
+
+    // builds the network of a pipe that isn't linked to any network yet, by flood filling over the other unlinked pipes
+    private static void restoreNetwork(World world, long start, PipeNetworkData data) {
+        if (!data.pipes.contains(start) || data.pipeNetworkLinks.containsKey(start)) return;
+
+        var network = new LongOpenHashSet();
+        var open = new LongArrayFIFOQueue();
+        var cursor = new BlockPos.Mutable();
+        network.add(start);
+        open.enqueue(start);
+
+        while (!open.isEmpty()) {
+            var node = open.dequeueLong();
+            var state = world.getBlockState(cursor.set(node));
+            if (!(state.getBlock() instanceof GenericPipeBlock block)) continue;
+
+            for (var direction : Direction.values()) {
+                if (!block.isConnectingInDirection(state, direction, false)) continue;
+                var neighbor = BlockPos.offset(node, direction);
+                if (data.pipes.contains(neighbor) && !data.pipeNetworkLinks.containsKey(neighbor) && network.add(neighbor))
+                    open.enqueue(neighbor);
+            }
+        }
+
+        var netID = data.createNetworkId();
+        data.pipeNetworks.put(netID, network);
+        data.pipeNetworkInterfaces.put(netID, findConnectedMachines(network, data));
+        for (var iterator = network.iterator(); iterator.hasNext(); )
+            data.pipeNetworkLinks.put(iterator.nextLong(), netID);
+        data.markNetworkChanged(netID);
+        data.markDirty();
+
+        Oritech.LOGGER.debug("restored network " + netID + " | Nodes: " + network.size());
+    }
+
     /**
      * Removes any stale machine -> neighboring pipes mappings
      * Used when a pipe node is destroyed
@@ -197,99 +366,279 @@ public abstract class GenericPipeInterfaceEntity extends BlockEntity implements
      * @param data network data
      */
     public static void removeStaleMachinePipeNeighbors(BlockPos pos, PipeNetworkData data) {
+        var node = pos.asLong();
         for (var neighbor : Direction.values()) {
-            var machine = pos.offset(neighbor);
-            var machineNeighbors = data.machinePipeNeighbors.get(machine);
-            if (machineNeighbors == null) continue;
-
-            machineNeighbors.remove(Direction.getFacing(Vec3d.of(pos.subtract(machine))));
-            if (machineNeighbors.isEmpty())
-                data.machinePipeNeighbors.remove(machine);
-            else
-                data.machinePipeNeighbors.put(machine, machineNeighbors);
+            data.removeMachinePipeNeighbor(BlockPos.offset(node, neighbor), neighbor.getOpposite());
         }
     }
 
-    private static class FloodFillSearch {
+    // runs one flood fill per start node in lockstep. Searches reaching the same node are joined (union-find over the search indices).
+    // Once at most one group of searches is still expanding, all finished groups are separate networks.
+    private static class SplitSearch {
 
-        final HashSet<BlockPos> checkedPositions = new HashSet<>();
-        final HashSet<BlockPos> nextTargets = new HashSet<>();
-        final Deque<BlockPos> foundTargets = new ArrayDeque<>();
-        final HashSet<BlockPos> pipes;
+        final Long2IntOpenHashMap visited = new Long2IntOpenHashMap();
+        final LongArrayFIFOQueue[] frontiers;
+        final int[] parents;
+        final BlockPos.Mutable cursor = new BlockPos.Mutable();
         final World world;
+        final int netID;
+        final PipeNetworkData data;
+        final long changedPos;
+        final BlockState changedState;
 
-        public FloodFillSearch(BlockPos startPosition, HashSet<BlockPos> pipes, World world) {
-            this.pipes = pipes;
+        public SplitSearch(World world, int netID, LongList starts, long changedPos, @Nullable BlockState changedState, PipeNetworkData data) {
             this.world = world;
-            nextTargets.add(startPosition);
+            this.netID = netID;
+            this.data = data;
+            this.changedPos = changedPos;
+            this.changedState = changedState;
+            this.frontiers = new LongArrayFIFOQueue[starts.size()];
+            this.parents = new int[starts.size()];
+            visited.defaultReturnValue(-1);
+
+            for (int i = 0; i < starts.size(); i++) {
+                parents[i] = i;
+                frontiers[i] = new LongArrayFIFOQueue();
+
+                var start = starts.getLong(i);
+                var owner = visited.putIfAbsent(start, i);
+                if (owner != -1) {
+                    union(owner, i);
+                } else {
+                    frontiers[i].enqueue(start);
+                }
+            }
         }
 
-        public Deque<BlockPos> complete() {
-            var active = true;
-            while (active) {
-                active = !nextGeneration();
+        // returns the node sets that are no longer connected to the remaining network
+        public List<LongOpenHashSet> complete() {
+            while (countOpenGroups() > 1) {
+                for (int i = 0; i < frontiers.length; i++) {
+                    if (!frontiers[i].isEmpty())
+                        expand(i, frontiers[i].dequeueLong());
+                }
             }
 
-            return foundTargets;
-        }
+            var groupSizes = new int[parents.length];
+            for (var iterator = visited.values().iterator(); iterator.hasNext(); )
+                groupSizes[find(iterator.nextInt())]++;
+
+            // the only group that is still expanding (or the largest one if all are done) keeps the original network
+            var keptGroup = -1;
+            for (int i = 0; i < parents.length; i++) {
+                if (find(i) != i) continue;
+                if (isOpen(i)) {
+                    keptGroup = i;
+                    break;
+                }
+                if (keptGroup == -1 || groupSizes[i] > groupSizes[keptGroup])
+                    keptGroup = i;
+            }
 
-        // returns true when done
-        @SuppressWarnings("unchecked")
-        public boolean nextGeneration() {
+            var detached = new Int2ObjectOpenHashMap<LongOpenHashSet>();
+            for (var iterator = visited.long2IntEntrySet().fastIterator(); iterator.hasNext(); ) {
+                var entry = iterator.next();
+                var group = find(entry.getIntValue());
+                if (group == keptGroup) continue;
+                detached.computeIfAbsent(group, key -> new LongOpenHashSet(groupSizes[key])).add(entry.getLongKey());
+            }
+
+            return new ArrayList<>(detached.values());
+        }
 
-            var currentGeneration = (HashSet<BlockPos>) nextTargets.clone();
+        private void expand(int search, long node) {
+            var state = node == changedPos && changedState != null ? changedState : world.getBlockState(cursor.set(node));
+            if (!(state.getBlock() instanceof GenericPipeBlock block)) return;
 
-            for (var target : currentGeneration) {
-                if (isValidTarget(target)) {
-                    foundTargets.addLast(target);
-                    addNeighborsToQueue(target);
+            for (var direction : Direction.values()) {
+                if (!block.isConnectingInDirection(state, direction, false)) continue;
+                var neighbor = BlockPos.offset(node, direction);
+                if (data.pipeNetworkLinks.get(neighbor) != netID) continue;
+
+                var owner = visited.putIfAbsent(neighbor, search);
+                if (owner == -1) {
+                    frontiers[search].enqueue(neighbor);
+                } else if (owner != search) {
+                    union(owner, search);
                 }
+            }
+        }
 
-                checkedPositions.add(target);
-                nextTargets.remove(target);
+        private int countOpenGroups() {
+            var count = 0;
+            for (int i = 0; i < parents.length; i++) {
+                if (find(i) == i && isOpen(i)) count++;
             }
+            return count;
+        }
 
-            if (cutoffSearch()) nextTargets.clear();
+        private boolean isOpen(int group) {
+            for (int i = 0; i < parents.length; i++) {
+                if (find(i) == group && !frontiers[i].isEmpty()) return true;
+            }
+            return false;
+        }
 
-            return nextTargets.isEmpty();
+        private int find(int search) {
+            while (parents[search] != search) {
+                parents[search] = parents[parents[search]];
+                search = parents[search];
+            }
+            return search;
         }
 
-        private boolean cutoffSearch() {
-            return foundTargets.size() >= MAX_SEARCH_COUNT;
+        private void union(int first, int second) {
+            var firstRoot = find(first);
+            var secondRoot = find(second);
+            if (firstRoot != secondRoot) parents[secondRoot] = firstRoot;
         }
+    }
 
-        private boolean isValidTarget(BlockPos target) {
-            return pipes.contains(target);
+    public static final class PipeNetworkData extends PersistentState {
+        // positions are stored as packed longs (BlockPos#asLong), sides as bit masks (see directionBit)
+        private final Long2IntOpenHashMap pipeNetworkLinks = new Long2IntOpenHashMap(); // which blockpos belongs to which network (ID)
+        private final LongOpenHashSet pipes = new LongOpenHashSet();
+        private final Long2ByteOpenHashMap machineInterfaces = new Long2ByteOpenHashMap(); // sides with connected machines per interface/connection block
+        private final Int2ObjectOpenHashMap<LongOpenHashSet> pipeNetworks = new Int2ObjectOpenHashMap<>();   // networks are updated in place when joined, split parts are moved to new ids
+        private final Int2ObjectOpenHashMap<Set<Pair<BlockPos, Direction>>> pipeNetworkInterfaces = new Int2ObjectOpenHashMap<>(); // list of machines that are connected to the network
+
+        private final Long2ByteOpenHashMap machinePipeNeighbors = new Long2ByteOpenHashMap(); // Sides with neighboring pipes per machine. Missing direction means no connection
+
+        private int nextNetworkId;
+        private boolean networksPending;    // some pipes are not linked to a network, because the networks were not saved
+        private int modificationCount;
+        private final Int2IntOpenHashMap networkRevisions = new Int2IntOpenHashMap();    // not saved, cached targets are rebuilt after loading anyway
+        private final Int2ObjectOpenHashMap<Object> networkCaches = new Int2ObjectOpenHashMap<>();    // runtime state per network, owned by the pipe type. Not saved
+
+        public PipeNetworkData() {
+            pipeNetworkLinks.defaultReturnValue(-1);
         }
 
-        private void addNeighborsToQueue(BlockPos self) {
-            var targetState = world.getBlockState(self);
+        public static int directionBit(Direction direction) {
+            return 1 << direction.getId();
+        }
 
-            if (!(targetState.getBlock() instanceof GenericPipeBlock targetBlock)) return;
-            for (var direction : Direction.values()) {
-                var neighbor = self.offset(direction);
-                if (checkedPositions.contains(neighbor)) continue;
-                if (!isValidTarget(neighbor)) {
-                    checkedPositions.add(neighbor);
-                    continue;
-                }
+        public static boolean hasDirection(int mask, Direction direction) {
+            return (mask & directionBit(direction)) != 0;
+        }
+
+        /**
+         * @param pos the pipe position
+         * @return the id of the network the pipe belongs to, or -1 if it is not part of any network
+         */
+        public int getNetworkId(BlockPos pos) {
+            return pipeNetworkLinks.get(pos.asLong());
+        }
 
-                // check if the target can connect to the neighbor
-                if (!targetBlock.isConnectingInDirection(targetState, direction, false)) continue;
+        @Nullable
+        public Set<Pair<BlockPos, Direction>> getNetworkInterfaces(int netID) {
+            return pipeNetworkInterfaces.get(netID);
+        }
 
-                nextTargets.add(neighbor);
+        /**
+         * @param pos the pipe position
+         * @return a direction mask of the sides of this pipe that have a connected machine, 0 if it isn't an interface
+         */
+        public int getMachineDirections(BlockPos pos) {
+            return machineInterfaces.get(pos.asLong());
+        }
+
+        /**
+         * @param machinePos the machine position
+         * @param side       the side of the machine
+         * @return whether a pipe is registered as neighbor on this side of the machine
+         */
+        public boolean hasMachinePipeNeighbor(BlockPos machinePos, Direction side) {
+            return hasDirection(machinePipeNeighbors.get(machinePos.asLong()), side);
+        }
+
+        public void removeMachinePipeNeighbors(BlockPos machinePos) {
+            machinePipeNeighbors.remove(machinePos.asLong());
+        }
+
+        private void addMachinePipeNeighbor(long machinePos, Direction side) {
+            machinePipeNeighbors.put(machinePos, (byte) (machinePipeNeighbors.get(machinePos) | directionBit(side)));
+        }
+
+        private void removeMachinePipeNeighbor(long machinePos, Direction side) {
+            var mask = machinePipeNeighbors.get(machinePos) & ~directionBit(side);
+            if (mask == 0) {
+                machinePipeNeighbors.remove(machinePos);
+            } else {
+                machinePipeNeighbors.put(machinePos, (byte) mask);
             }
         }
-    }
 
-    public static final class PipeNetworkData extends PersistentState {
-        public final HashMap<BlockPos, Integer> pipeNetworkLinks = new HashMap<>(); // which blockpos belongs to which network (ID)
-        public final HashSet<BlockPos> pipes = new HashSet<>();
-        public final HashMap<BlockPos, Set<BlockPos>> machineInterfaces = new HashMap<>(); // list of machines per interface/connection block
-        public final HashMap<Integer, Set<BlockPos>> pipeNetworks = new HashMap<>();   // networks are never updated, and instead always replaced by new ones with different ids
-        public final HashMap<Integer, Set<Pair<BlockPos, Direction>>> pipeNetworkInterfaces = new HashMap<>(); // list of machines that are connected to the network
+        /**
+         * Network ids are handed out in ascending order, and never re-used within the same save.
+         */
+        public int createNetworkId() {
+            return nextNetworkId++;
+        }
+
+        /**
+         * Returns a value that changes whenever the nodes or interfaces of the network change.
+         * Revisions are unique across all networks of this data, so comparing the revision alone is
+         * enough to detect that a cached target list is outdated, even if the node moved to another network.
+         *
+         * @param netID the network id, or -1 for no network
+         * @return the current revision, or 0 if the network doesn't exist
+         */
+        public int getNetworkRevision(int netID) {
+            return networkRevisions.get(netID);
+        }
+
+        public void markNetworkChanged(int netID) {
+            networkRevisions.put(netID, ++modificationCount);
+        }
+
+        public void removeNetwork(int netID) {
+            pipeNetworks.remove(netID);
+            pipeNetworkInterfaces.remove(netID);
+            networkRevisions.remove(netID);
+            networkCaches.remove(netID);
+        }
+
+        /**
+         * Returns the runtime state attached to a network, creating it if needed. The state is dropped when the network
+         * is removed or merged into another one, and is expected to check {@link #getNetworkRevision(int)} for other changes.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getNetworkCache(int netID, Supplier<T> factory) {
+            return (T) networkCaches.computeIfAbsent(netID, id -> factory.get());
+        }
+
+        // older saves used the hash of the node set as id, which could collide. Those are replaced with ascending ids.
+        private void renumberNetworks() {
+            var oldNetworks = new ArrayList<>(pipeNetworks.values());
+            pipeNetworks.clear();
+            for (var nodes : oldNetworks)
+                pipeNetworks.put(createNetworkId(), nodes);
+        }
 
-        public final HashMap<BlockPos, Set<Direction>> machinePipeNeighbors = new HashMap<>(); // List of neighboring pipes per machine, and the direction they are in. Missing direction means no connection
+        // links and interfaces are derived from the networks and machine interfaces
+        private void linkNetworks() {
+            pipeNetworkLinks.clear();
+            pipeNetworkInterfaces.clear();
+
+            for (var entries = pipeNetworks.int2ObjectEntrySet().fastIterator(); entries.hasNext(); ) {
+                var entry = entries.next();
+                var netID = entry.getIntKey();
+                var nodes = entry.getValue();
+                nodes.retainAll(pipes);
+                if (nodes.isEmpty()) {
+                    entries.remove();
+                    continue;
+                }
+
+                for (var iterator = nodes.iterator(); iterator.hasNext(); )
+                    pipeNetworkLinks.put(iterator.nextLong(), netID);
+                pipeNetworkInterfaces.put(netID, findConnectedMachines(nodes, this));
+                markNetworkChanged(netID);
+            }
+
+            networksPending = pipeNetworkLinks.size() < pipes.size();
+        }
 
         @Override
         public int hashCode() {
@@ -303,24 +652,63 @@ public abstract class GenericPipeInterfaceEntity extends BlockEntity implements
 
         public static Type<PipeNetworkData> TYPE = new Type<>(PipeNetworkData::new, PipeNetworkData::fromNbt, null);
 
+        /**
+         * Version of the save format. Saves without a version use the old format with one nbt entry per node,
+         * and are converted when loaded.
+         */
+        private static final int FORMAT_VERSION = 2;
+
         public static PipeNetworkData fromNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
 
             var result = new PipeNetworkData();
 
-            if (nbt.contains("pipeNetworkLinks", NbtElement.LIST_TYPE)) {
-                var pipeNetworkLinksList = nbt.getList("pipeNetworkLinks", NbtElement.COMPOUND_TYPE);
-                for (var element : pipeNetworkLinksList) {
-                    var entry = (NbtCompound) element;
-                    var pos = BlockPos.fromLong(entry.getLong("pos"));
-                    var id = entry.getInt("id");
-                    result.pipeNetworkLinks.put(pos, id);
-                }
+            if (nbt.getInt("version") >= FORMAT_VERSION) {
+                result.readColumns(nbt);
+            } else {
+                result.readLegacy(nbt);
             }
 
+            result.linkNetworks();
+            result.markDirty();
+
+            return result;
+        }
+
+        // positions and direction masks are stored in separate arrays. Networks are stored as one array of all nodes, with the size of each network
+        private void readColumns(NbtCompound nbt) {
+            for (var pipe : nbt.getLongArray("pipes"))
+                pipes.add(pipe);
+
+            readMasks(nbt.getLongArray("interfaceNodes"), nbt.getByteArray("interfaceSides"), machineInterfaces);
+            readMasks(nbt.getLongArray("neighborMachines"), nbt.getByteArray("neighborSides"), machinePipeNeighbors);
+
+            var networkIds = nbt.getIntArray("networkIds");
+            var networkSizes = nbt.getIntArray("networkSizes");
+            var networkNodes = nbt.getLongArray("networkNodes");
+            var offset = 0;
+            for (int i = 0; i < networkIds.length && i < networkSizes.length; i++) {
+                var size = Math.min(networkSizes[i], networkNodes.length - offset);
+                pipeNetworks.put(networkIds[i], new LongOpenHashSet(networkNodes, offset, size));
+                offset += size;
+            }
+
+            nextNetworkId = nbt.getInt("nextNetworkId");
+        }
+
+        private static void readMasks(long[] positions, byte[] masks, Long2ByteOpenHashMap target) {
+            target.ensureCapacity(positions.length);
+            for (int i = 0; i < positions.length && i < masks.length; i++) {
+                if (masks[i] != 0) target.put(positions[i], masks[i]);
+            }
+        }
+
+        private void readLegacy(NbtCompound nbt) {
+
             // Deserialize pipes
             if (nbt.contains("pipes", NbtElement.LIST_TYPE)) {
                 var pipesList = nbt.getList("pipes", NbtElement.LONG_TYPE);
-                pipesList.stream().map(element -> BlockPos.fromLong(((NbtLong) element).longValue())).forEach(result.pipes::add);
+                for (var element : pipesList)
+                    pipes.add(((NbtLong) element).longValue());
             }
 
             // Deserialize machineInterfaces
@@ -328,41 +716,22 @@ public abstract class GenericPipeInterfaceEntity extends BlockEntity implements
                 var machineInterfacesNbt = nbt.getCompound("machineInterfaces");
                 for (var key : machineInterfacesNbt.getKeys()) {
                     var interfacePos = BlockPos.fromLong(Long.parseLong(key));
-                    var machinesArray = machineInterfacesNbt.getLongArray(key);
-                    var machines = Arrays.stream(machinesArray)
-                                     .mapToObj(BlockPos::fromLong)
-                                     .collect(Collectors.toSet());
-                    result.machineInterfaces.put(interfacePos, machines);
+                    var mask = 0;
+                    for (var machine : machineInterfacesNbt.getLongArray(key)) {
+                        var offset = BlockPos.fromLong(machine).subtract(interfacePos);
+                        var direction = Direction.fromVector(offset.getX(), offset.getY(), offset.getZ());
+                        if (direction != null) mask |= directionBit(direction);
+                    }
+                    if (mask != 0) machineInterfaces.put(interfacePos.asLong(), (byte) mask);
                 }
             }
 
-            // Deserialize pipeNetworks
+            // Deserialize pipeNetworks. Links and interfaces are rebuilt from them
             if (nbt.contains("pipeNetworks", NbtElement.COMPOUND_TYPE)) {
                 var pipeNetworksNbt = nbt.getCompound("pipeNetworks");
                 for (var key : pipeNetworksNbt.getKeys()) {
                     var id = Integer.parseInt(key);
-                    var networkArray = pipeNetworksNbt.getLongArray(key);
-                    var network = Arrays.stream(networkArray)
-                                    .mapToObj(BlockPos::fromLong)
-                                    .collect(Collectors.toSet());
-                    result.pipeNetworks.put(id, network);
-                }
-            }
-
-            // Deserialize pipeNetworkInterfaces
-            if (nbt.contains("pipeNetworkInterfaces", NbtElement.COMPOUND_TYPE)) {
-                var pipeNetworkInterfacesNbt = nbt.getCompound("pipeNetworkInterfaces");
-                for (var key : pipeNetworkInterfacesNbt.getKeys()) {
-                    var id = Integer.parseInt(key);
-                    var interfacesList = pipeNetworkInterfacesNbt.getList(key, NbtElement.COMPOUND_TYPE);
-                    var interfaces = new HashSet<Pair<BlockPos, Direction>>();
-                    for (var interfaceElement : interfacesList) {
-                        var pairNbt = (NbtCompound) interfaceElement;
-                        var pos = BlockPos.fromLong(pairNbt.getLong("pos"));
-                        var direction = Direction.byName(pairNbt.getString("direction"));
-                        interfaces.add(new Pair<>(pos, direction));
-                    }
-                    result.pipeNetworkInterfaces.put(id, interfaces);
+                    pipeNetworks.put(id, new LongOpenHashSet(pipeNetworksNbt.getLongArray(key)));
                 }
             }
 
@@ -370,82 +739,74 @@ public abstract class GenericPipeInterfaceEntity extends BlockEntity implements
             if (nbt.contains("machinePipeNeighbors", NbtElement.COMPOUND_TYPE)) {
                 var connectionPipeNeighborsNbt = nbt.getCompound("machinePipeNeighbors");
                 for (var key : connectionPipeNeighborsNbt.getKeys()) {
-                    var pos = BlockPos.fromLong(Long.parseLong(key));
+                    var pos = Long.parseLong(key);
                     var neighborsList = connectionPipeNeighborsNbt.getList(key, NbtElement.STRING_TYPE);
-                    var neighbors = new HashSet<Direction>();
                     for (var neighborElement : neighborsList) {
                         var direction = Direction.byName(neighborElement.asString());
-                        neighbors.add(direction);
+                        if (direction != null) addMachinePipeNeighbor(pos, direction);
                     }
-                    result.machinePipeNeighbors.put(pos, neighbors);
                 }
             }
 
-            result.markDirty();
-
-            return result;
+            if (nbt.contains("nextNetworkId", NbtElement.INT_TYPE)) {
+                nextNetworkId = nbt.getInt("nextNetworkId");
+            } else {
+                renumberNetworks();
+            }
         }
 
         @Override
         public NbtCompound writeNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
 
-            // Serialize pipeNetworkLinks
-            var pipeNetworkLinksList = new NbtList();
-            pipeNetworkLinks.forEach((pos, id) -> {
-                var entry = new NbtCompound();
-                entry.putLong("pos", pos.asLong());
-                entry.putInt("id", id);
-                pipeNetworkLinksList.add(entry);
-            });
-            nbt.put("pipeNetworkLinks", pipeNetworkLinksList);
-
-            // Serialize pipes
-            var pipesList = new NbtList();
-            pipes.forEach(pos -> pipesList.add(NbtLong.of(pos.asLong())));
-            nbt.put("pipes", pipesList);
-
-            // Serialize machineInterfaces
-            var machineInterfacesNbt = new NbtCompound();
-            machineInterfaces.forEach((interfacePos, machines) -> {
-                machineInterfacesNbt.putLongArray(Long.toString(interfacePos.asLong()), machines.stream().map(BlockPos::asLong).collect(Collectors.toList()));
-            });
-            nbt.put("machineInterfaces", machineInterfacesNbt);
-
-            // Serialize pipeNetworks
-            var pipeNetworksNbt = new NbtCompound();
-            pipeNetworks.forEach((id, network) -> {
-                pipeNetworksNbt.putLongArray(id.toString(), network.stream().map(BlockPos::asLong).collect(Collectors.toList()));
-            });
-            nbt.put("pipeNetworks", pipeNetworksNbt);
-
-            // Serialize pipeNetworkInterfaces
-            var pipeNetworkInterfacesNbt = new NbtCompound();
-            pipeNetworkInterfaces.forEach((id, interfaces) -> {
-                var interfacesList = new NbtList();
-                interfaces.forEach(pair -> {
-                    var pairNbt = new NbtCompound();
-                    pairNbt.putLong("pos", pair.getLeft().asLong());
-                    pairNbt.putString("direction", pair.getRight().getName());
-                    interfacesList.add(pairNbt);
-                });
-                pipeNetworkInterfacesNbt.put(id.toString(), interfacesList);
-            });
-            nbt.put("pipeNetworkInterfaces", pipeNetworkInterfacesNbt);
-
-            // Serialize machinePipeNeighbors
-            var connectionPipeNeighborsNbt = new NbtCompound();
-            machinePipeNeighbors.forEach((pos, neighbors) -> {
-                var neighborsList = new NbtList();
-                neighbors.forEach(direction -> {
-                    var nbtElement = NbtString.of(direction.getName());
-                    neighborsList.add(nbtElement);
-                });
-                connectionPipeNeighborsNbt.put(Long.toString(pos.asLong()), neighborsList);
-            });
-            nbt.put("machinePipeNeighbors", connectionPipeNeighborsNbt);
+            nbt.putInt("version", FORMAT_VERSION);
+            nbt.putLongArray("pipes", pipes.toLongArray());
+
+            writeMasks(nbt, "interfaceNodes", "interfaceSides", machineInterfaces);
+            writeMasks(nbt, "neighborMachines", "neighborSides", machinePipeNeighbors);
+
+            // networks can be restored from the pipe blocks, but that needs to load the chunks of each network when it's first used
+            if (Oritech.CONFIG.savePipeNetworks()) {
+                var networkIds = new int[pipeNetworks.size()];
+                var networkSizes = new int[pipeNetworks.size()];
+                var nodeCount = 0;
+                for (var network : pipeNetworks.values())
+                    nodeCount += network.size();
+
+                var networkNodes = new long[nodeCount];
+                var index = 0;
+                var offset = 0;
+                for (var entry : pipeNetworks.int2ObjectEntrySet()) {
+                    networkIds[index] = entry.getIntKey();
+                    networkSizes[index] = entry.getValue().size();
+                    for (var iterator = entry.getValue().iterator(); iterator.hasNext(); )
+                        networkNodes[offset++] = iterator.nextLong();
+                    index++;
+                }
+
+                nbt.putIntArray("networkIds", networkIds);
+                nbt.putIntArray("networkSizes", networkSizes);
+                nbt.putLongArray("networkNodes", networkNodes);
+            }
+
+            nbt.putInt("nextNetworkId", nextNetworkId);
 
             return nbt;
         }
+
+        private static void writeMasks(NbtCompound nbt, String positionsKey, String masksKey, Long2ByteOpenHashMap source) {
+            var positions = new long[source.size()];
+            var masks = new byte[source.size()];
+            var index = 0;
+            for (var iterator = source.long2ByteEntrySet().fastIterator(); iterator.hasNext(); ) {
+                var entry = iterator.next();
+                positions[index] = entry.getLongKey();
+                masks[index] = entry.getByteValue();
+                index++;
+            }
+
+            nbt.putLongArray(positionsKey, positions);
+            nbt.putByteArray(masksKey, masks);
+        }
     }
 
 }
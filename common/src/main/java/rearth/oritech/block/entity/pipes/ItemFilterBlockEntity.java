@@ -32,6 +32,7 @@ import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
 import rearth.oritech.block.blocks.pipes.item.ItemFilterBlock;
+import rearth.oritech.block.blocks.pipes.item.ItemPipeBlock;
 import rearth.oritech.client.init.ModScreens;
 import rearth.oritech.client.ui.ItemFilterScreenHandler;
 import rearth.oritech.init.BlockEntitiesContent;
@@ -147,9 +148,24 @@ public class ItemFilterBlockEntity extends BlockEntity implements InventoryProvi
     
     public void setFilterSettings(FilterData filterSettings) {
         this.filterSettings = filterSettings;
+        markConnectedNetworksChanged();
         this.markDirty();
     }
     
+    // the routing tables of the item networks next to this filter contain its settings, so they need to be rebuilt
+    private void markConnectedNetworksChanged() {
+        if (world == null || world.isClient) return;
+        
+        var data = ItemPipeBlock.ITEM_PIPE_DATA.get(world.getRegistryKey().getValue());
+        if (data == null) return;
+        
+        for (var side : Direction.values()) {
+            if (!data.hasMachinePipeNeighbor(pos, side)) continue;
+            var netID = data.getNetworkId(pos.offset(side));
+            if (netID != -1) data.markNetworkChanged(netID);
+        }
+    }
+    
     @Override
     public void markDirty() {
         if (this.world != null)
@@ -158,41 +174,17 @@ public class ItemFilterBlockEntity extends BlockEntity implements InventoryProvi
     
     // items is a map of position index (in the filter GUI) to filtered item stack
     public record FilterData(boolean useNbt, boolean useWhitelist, Map<Integer, ItemStack> items) {
-    }
-    
-    public class FilterBlockInventory extends SimpleInventory implements SidedInventory {
-        
-        public FilterBlockInventory(int size) {
-            super(size);
-        }
-        
-        @Override
-        public void markDirty() {
-            ItemFilterBlockEntity.this.markDirty();
-        }
-        
-        @Override
-        public int[] getAvailableSlots(Direction side) {
-            return new int[]{0};
-        }
         
-        @Override
-        public boolean canInsert(int slot, ItemStack stack, @Nullable Direction side) {
-            
-            // check sides first
-            var outputSide = getCachedState().get(ItemFilterBlock.TARGET_DIR);
-            if (side.equals(outputSide)) return false;
+        public boolean accepts(ItemStack stack) {
             
-            // then check filter settings
             // todo add option to compare components and/or nbt (possibly third button?)
-            var checkNbt = filterSettings.useNbt;
             var matchesFilterItems = false; // check if at least 1 item matches
             
-            for (var filterItem : filterSettings.items.values()) {
+            for (var filterItem : items.values()) {
                 var matchesType = stack.getItem().equals(filterItem.getItem());
                 if (!matchesType) continue;
                 
-                if (checkNbt) {
+                if (useNbt) {
                     // check if both have nbt, if so compare them
                     // if not both check if neither has nbt, and type matches
                     if (stack.contains(DataComponentTypes.CUSTOM_DATA) && filterItem.contains(DataComponentTypes.CUSTOM_DATA)) {
@@ -213,13 +205,41 @@ public class ItemFilterBlockEntity extends BlockEntity implements InventoryProvi
             }
             
             // matchesFilterItems is true when at least 1 item matches
-            if (filterSettings.useWhitelist) {
+            if (useWhitelist) {
                 return matchesFilterItems;
             } else {
                 // blacklist list, if we have a match we return false
                 return !matchesFilterItems;
             }
         }
+    }
+    
+    public class FilterBlockInventory extends SimpleInventory implements SidedInventory {
+        
+        public FilterBlockInventory(int size) {
+            super(size);
+        }
+        
+        @Override
+        public void markDirty() {
+            ItemFilterBlockEntity.this.markDirty();
+        }
+        
+        @Override
+        public int[] getAvailableSlots(Direction side) {
+            return new int[]{0};
+        }
+        
+        @Override
+        public boolean canInsert(int slot, ItemStack stack, @Nullable Direction side) {
+            
+            // check sides first
+            var outputSide = getCachedState().get(ItemFilterBlock.TARGET_DIR);
+            if (side.equals(outputSide)) return false;
+            
+            // then check filter settings
+            return filterSettings.accepts(stack);
+        }
         
         @Override
         public boolean canExtract(int slot, ItemStack stack, Direction side) {
@@ -1,18 +1,18 @@
 package rearth.oritech.block.entity.pipes;
 
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import net.fabricmc.fabric.api.lookup.v1.block.BlockApiCache;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemStorage;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.fabricmc.fabric.api.transfer.v1.storage.SlottedStorage;
 import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
-import net.fabricmc.fabric.api.transfer.v1.storage.StorageView;
 import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
 import net.minecraft.block.BlockState;
-import net.minecraft.item.ItemStack;
 import net.minecraft.server.world.ServerWorld;
-import net.minecraft.util.Pair;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
 import rearth.oritech.Oritech;
 import rearth.oritech.block.blocks.pipes.ExtractablePipeConnectionBlock;
 import rearth.oritech.block.blocks.pipes.item.ItemPipeBlock;
@@ -27,7 +27,17 @@ public class ItemPipeInterfaceEntity extends ExtractablePipeInterfaceEntity {
     private static final int TRANSFER_PERIOD = Oritech.CONFIG.itemPipeIntervalDuration();
     
     private final HashMap<BlockPos, BlockApiCache<Storage<ItemVariant>, Direction>> lookupCache = new HashMap<>();
-    private List<Pair<Storage<ItemVariant>, BlockPos>> filteredTargetItemStorages;
+    
+    // storages of the routing table targets (by table index), and the table indices ordered by distance
+    private List<Storage<ItemVariant>> targetStorages = List.of();
+    private int[] targetOrder = new int[0];
+    private ItemRoutingTable routingTable;
+    private int routingTableGeneration = -1;
+    
+    // slot of the last extracted stack, checked first on the next transfer
+    private Direction lastSourceSide;
+    private int lastSourceSlot;
+    private ItemVariant lastSourceVariant = ItemVariant.blank();
 
     public ItemPipeInterfaceEntity(BlockPos pos, BlockState state) {
         super(BlockEntitiesContent.ITEM_PIPE_ENTITY, pos, state);
@@ -44,87 +54,106 @@ public class ItemPipeInterfaceEntity extends ExtractablePipeInterfaceEntity {
 			return;
         
         // find first itemstack from connected invs (that can be extracted)
-        // try to move it to one of the destinations
+        // try to move it to one of the destinations, and extract only what was inserted, all in one transaction
         
         var data = ItemPipeBlock.ITEM_PIPE_DATA.getOrDefault(world.getRegistryKey().getValue(), new PipeNetworkData());
         
-        var sources = data.machineInterfaces.getOrDefault(pos, new HashSet<>());
-        var stackToMove = ItemStack.EMPTY;
-        Storage<ItemVariant> moveFromInventory = null;
+        var sources = data.getMachineDirections(pos);
         var moveCapacity = isBoostAvailable() ? 64 : TRANSFER_AMOUNT;
-
-        try (var mainTx = Transaction.openOuter()) {
-            for (var sourcePos : sources) {
-                var offset = pos.subtract(sourcePos);
-                var direction = Direction.fromVector(offset.getX(), offset.getY(), offset.getZ());
-                if (!block.isSideExtractable(state, direction.getOpposite())) continue;
+        
+        try (var tx = Transaction.openOuter()) {
+            for (var side : Direction.values()) {
+                if (!PipeNetworkData.hasDirection(sources, side) || !block.isSideExtractable(state, side)) continue;
+                var sourcePos = pos.offset(side);
+                var direction = side.getOpposite();
                 var inventory = findFromCache(world, sourcePos, direction);
                 if (inventory == null || !inventory.supportsExtraction()) continue;
                 
-                var firstStack = getFromStorage(inventory, moveCapacity, mainTx);
+                var source = findSource(inventory, side, moveCapacity, tx);
+                if (source == null) continue;
+                
+                // only the first extractable item is moved
+                var variant = source.variant();
+                var table = getRoutingTable(world, pos, data);
+                if (table == null) return;
+                
+                var accepting = table.getAcceptingTargets(variant);
+                if (accepting.isEmpty()) return;
+                
+                var moved = 0L;
+                for (var index : targetOrder) {
+                    if (!accepting.get(index)) continue;
+                    var target = getTargetStorage(world, index);
+                    if (target == null) continue;
+                    moved += target.insert(variant, source.amount() - moved, tx);
+                    if (moved >= source.amount()) break;
+                }
+                
+                if (moved <= 0) return;
                 
-                if (!firstStack.isEmpty()) {
-                    stackToMove = firstStack;
-                    moveFromInventory = inventory;
-                    break;
+                var extracted = inventory.extract(variant, moved, tx);
+                if (extracted != moved) {
+                    Oritech.LOGGER.warn("Invalid state while transferring inventory. Caused at position " + pos);
+                    return;
                 }
                 
+                tx.commit();
+                if (moveCapacity > TRANSFER_AMOUNT) onBoostUsed();
+                return;
             }
-            
-            mainTx.abort();
         }
+
+    }
+    
+    /**
+     * Returns the routing table of the network, and updates the storages of its targets as seen from this interface
+     * if the table has been rebuilt since the last transfer.
+     */
+    @Nullable
+    private ItemRoutingTable getRoutingTable(World world, BlockPos pos, PipeNetworkData data) {
+        
+        var netID = findNetworkId(world, pos, data);
+        var table = data.<ItemRoutingTable>getNetworkCache(netID, ItemRoutingTable::new);
+        if (!table.update(world, data, netID)) return null;
+        if (table == routingTable && table.generation == routingTableGeneration) return table;
         
-        if (stackToMove.isEmpty()) return;
-        
-        var targets = findNetworkTargets(pos, data);
-        if (targets == null) return;
-        
-        var netHash = targets.hashCode();
-        
-        if (netHash != filteredTargetsNetHash) {
-            filteredTargetItemStorages = targets.stream()
-                                           .filter(target -> {
-                                               var direction = target.getRight();
-                                               var pipePos = target.getLeft().add(direction.getVector());
-                                               var pipeState = world.getBlockState(pipePos);
-                                               if (!(pipeState.getBlock() instanceof ItemPipeConnectionBlock itemBlock))
-                                                   return true;   // edge case, this should never happen
-                                               var extracting = itemBlock.isSideExtractable(pipeState, direction.getOpposite());
-                                               return !extracting;
-                                           })
-                                           .map(target -> new Pair<>(findFromCache(world, target.getLeft(), target.getRight()), target.getLeft()))
-                    .filter(obj -> Objects.nonNull(obj.getLeft()) && obj.getLeft().supportsInsertion()) //&& obj.getRight().getManhattanDistance(pos) > 1)
-                                           .sorted(Comparator.comparingInt(a -> a.getRight().getManhattanDistance(pos)))
-                                           .toList();
+        var storages = new ArrayList<Storage<ItemVariant>>(table.targets.size());
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < table.targets.size(); i++) {
+            var target = table.targets.get(i);
+            var storage = findFromCache(world, target.pos(), target.side());
+            storages.add(storage);
             
-            filteredTargetsNetHash = netHash;
+            // skip pipe sides that extract from the target, and targets that can't take items.
+            // Missing storages (e.g. in unloaded chunks) stay in the order, and are looked up again when used
+            var pipePos = target.pos().offset(target.side());
+            var pipeState = world.getBlockState(pipePos);
+            if (pipeState.getBlock() instanceof ItemPipeConnectionBlock itemBlock && itemBlock.isSideExtractable(pipeState, target.side().getOpposite()))
+                continue;
+            if (storage != null && !storage.supportsInsertion()) continue;
+            order.add(i);
         }
         
-        var moveCount = stackToMove.getCount();
-        var moved = 0L;
+        order.sort(Comparator.comparingInt(index -> table.targets.get(index).pos().getManhattanDistance(pos)));
         
-        try (var tx = Transaction.openOuter()) {
-            for (var targetStorage : filteredTargetItemStorages) {
-                var inserted = targetStorage.getLeft().insert(ItemVariant.of(stackToMove), moveCount, tx);
-                moveCount -= (int) inserted;
-                moved += inserted;
-                
-                if (moveCount <= 0) break;
-            }
-            
-            var extracted = moveFromInventory.extract(ItemVariant.of(stackToMove), moved, tx);
-            
-            if (extracted != moved) {
-                Oritech.LOGGER.warn("Invalid state while transferring inventory. Caused at position " + pos);
-                tx.abort();
-            } else {
-                tx.commit();
-            }
-            
-        }
+        targetStorages = storages;
+        targetOrder = order.stream().mapToInt(Integer::intValue).toArray();
+        routingTable = table;
+        routingTableGeneration = table.generation;
+        return table;
+    }
+    
+    @Nullable
+    private Storage<ItemVariant> getTargetStorage(World world, int index) {
+        var storage = targetStorages.get(index);
+        if (storage != null) return storage;
         
-        if (moved > 0 && moveCapacity > TRANSFER_AMOUNT) onBoostUsed();
-
+        var target = routingTable.targets.get(index);
+        storage = findFromCache(world, target.pos(), target.side());
+        if (storage == null || !storage.supportsInsertion()) return null;
+        
+        targetStorages.set(index, storage);
+        return storage;
     }
     
     @Override
@@ -138,16 +167,124 @@ public class ItemPipeInterfaceEntity extends ExtractablePipeInterfaceEntity {
         return cacheRes.find(direction);
     }
     
-    private static ItemStack getFromStorage(Storage<ItemVariant> inventory, int maxTransferAmount, Transaction mainTx) {
-        for (Iterator<StorageView<ItemVariant>> it = inventory.nonEmptyIterator(); it.hasNext(); ) {
-            var stack = it.next();
-            var type = stack.getResource();
-            var extractedAmount = inventory.extract(type, maxTransferAmount, mainTx);
-            if (extractedAmount > 0) {
-                return type.toStack((int) extractedAmount);
+    /**
+     * Finds the first item that can be extracted from the inventory. For slotted inventories, the slot of the last
+     * transfer is checked first, so continuous transfers don't scan the whole inventory each time. The slot only
+     * selects the item, the amount is extracted from the whole inventory.
+     *
+     * @return the item to extract, with the amount that can be extracted, or null if nothing can be extracted
+     */
+    @Nullable
+    private ExtractionSource findSource(Storage<ItemVariant> inventory, Direction side, int maxAmount, Transaction tx) {
+        
+        if (!(inventory instanceof SlottedStorage<ItemVariant> slotted)) {
+            for (var view : inventory.nonEmptyViews()) {
+                var amount = getExtractableAmount(inventory, view.getResource(), maxAmount, tx);
+                if (amount > 0) return new ExtractionSource(view.getResource(), amount);
             }
+            return null;
         }
         
-        return ItemStack.EMPTY;
+        var slotCount = slotted.getSlotCount();
+        if (side == lastSourceSide && lastSourceSlot < slotCount) {
+            var slot = slotted.getSlot(lastSourceSlot);
+            if (slot.getResource().equals(lastSourceVariant)) {
+                var amount = getExtractableAmount(inventory, lastSourceVariant, maxAmount, tx);
+                if (amount > 0) return new ExtractionSource(lastSourceVariant, amount);
+            }
+        }
+        
+        for (int i = 0; i < slotCount; i++) {
+            var slot = slotted.getSlot(i);
+            if (slot.isResourceBlank() || slot.getAmount() <= 0) continue;
+            
+            var variant = slot.getResource();
+            var amount = getExtractableAmount(inventory, variant, maxAmount, tx);
+            if (amount > 0) {
+                lastSourceSide = side;
+                lastSourceSlot = i;
+                lastSourceVariant = variant;
+                return new ExtractionSource(variant, amount);
+            }
+        }
+        
+        return null;
+    }
+    
+    // checks the extraction in a nested transaction, which is reverted when closed
+    private static long getExtractableAmount(Storage<ItemVariant> inventory, ItemVariant variant, int maxAmount, Transaction tx) {
+        try (var probe = tx.openNested()) {
+            return inventory.extract(variant, maxAmount, probe);
+        }
+    }
+    
+    private record ExtractionSource(ItemVariant variant, long amount) {
+    }
+    
+    /**
+     * Routing index of an item pipe network, shared by all of its interfaces. For each item (or each variant, if a
+     * filter on the network compares components) it stores which targets would accept it, so routing a stack is a
+     * single lookup. Rebuilt when the network or one of its filters changes.
+     */
+    private static final class ItemRoutingTable {
+        
+        private static final int MAX_CACHED_KEYS = 1024;
+        
+        private final List<RoutingTarget> targets = new ArrayList<>();
+        private final Object2ObjectLinkedOpenHashMap<Object, BitSet> acceptingTargets = new Object2ObjectLinkedOpenHashMap<>();   // in order of last use
+        private int revision = -1;
+        private int generation;
+        private boolean keyByVariant;
+        
+        // returns false if the network has no interfaces
+        private boolean update(World world, PipeNetworkData data, int netID) {
+            
+            var interfaces = data.getNetworkInterfaces(netID);
+            if (interfaces == null) return false;
+            
+            // filters mark their networks as changed when their settings change
+            var networkRevision = data.getNetworkRevision(netID);
+            if (networkRevision == revision) return true;
+            
+            targets.clear();
+            acceptingTargets.clear();
+            keyByVariant = false;
+            for (var target : interfaces) {
+                ItemFilterBlockEntity.FilterData filter = null;
+                if (world.getBlockEntity(target.getLeft()) instanceof ItemFilterBlockEntity filterEntity) {
+                    filter = filterEntity.getFilterSettings();
+                    keyByVariant |= filter.useNbt();
+                }
+                targets.add(new RoutingTarget(target.getLeft(), target.getRight(), filter));
+            }
+            
+            revision = networkRevision;
+            generation++;
+            return true;
+        }
+        
+        private BitSet getAcceptingTargets(ItemVariant variant) {
+            
+            var key = keyByVariant ? variant : variant.getItem();
+            var cached = acceptingTargets.getAndMoveToLast(key);
+            if (cached != null) return cached;
+            
+            // drop the least recently used key
+            if (acceptingTargets.size() >= MAX_CACHED_KEYS) acceptingTargets.removeFirst();
+            
+            var stack = variant.toStack();
+            var result = new BitSet(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                var filter = targets.get(i).filter();
+                if (filter == null || filter.accepts(stack))
+                    result.set(i);
+            }
+            
+            acceptingTargets.putAndMoveToLast(key, result);
+            return result;
+        }
+    }
+    
+    private record RoutingTarget(BlockPos pos, Direction side, @Nullable ItemFilterBlockEntity.FilterData filter) {
     }
 }
@@ -193,7 +193,7 @@ public class CentrifugeBlockEntity extends MultiblockMachineEntity implements Fl
             return super.getRecipe();
         
         // get recipes matching input items
-        var candidates = Objects.requireNonNull(world).getRecipeManager().getAllMatches(getOwnRecipeType(), getInputInventory(), world);
+        var candidates = getOwnRecipeType().getIndex(Objects.requireNonNull(world).getRecipeManager()).getAllMatches(getInputInventory(), world);
         // filter out recipes based on input tank
         var fluidRecipe = candidates.stream().filter(candidate -> recipeMatchesTank(inputStorage, candidate.value())).findAny();
         if (fluidRecipe.isPresent()) {
@@ -205,7 +205,7 @@ public class CentrifugeBlockEntity extends MultiblockMachineEntity implements Fl
     
     // this is provided as fallback for fluid centrifuges that may still process normal stuff
     private Optional<RecipeEntry<OritechRecipe>> getNormalRecipe() {
-        return world.getRecipeManager().getFirstMatch(RecipeContent.CENTRIFUGE, getInputInventory(), world);
+        return RecipeContent.CENTRIFUGE.getIndex(world.getRecipeManager()).getFirstMatch(getInputInventory(), world);
     }
     
     public static boolean recipeMatchesTank(SingleVariantStorage<FluidVariant> checkedTank, OritechRecipe recipe) {
@@ -394,7 +394,7 @@ public class CentrifugeBlockEntity extends MultiblockMachineEntity implements Fl
     protected void sendNetworkEntry() {
         super.sendNetworkEntry();
         
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(
+        sendNetworkPacket(
           new NetworkContent.CentrifugeFluidSyncPacket(
             pos,
             hasFluidAddon,
@@ -108,7 +108,7 @@ public class CoolerBlockEntity extends MultiblockMachineEntity implements FluidP
     @Override
     protected void sendNetworkEntry() {
         super.sendNetworkEntry();
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.SingleVariantFluidSyncPacket(pos, Registries.FLUID.getId(inputTank.variant.getFluid()).toString(), inputTank.amount));
+        sendNetworkPacket(new NetworkContent.SingleVariantFluidSyncPacket(pos, Registries.FLUID.getId(inputTank.variant.getFluid()).toString(), inputTank.amount));
     }
     
     @Override
@@ -130,7 +130,7 @@ public class CoolerBlockEntity extends MultiblockMachineEntity implements FluidP
     protected Optional<RecipeEntry<OritechRecipe>> getRecipe() {
         
         // get recipes matching input items
-        var candidates = Objects.requireNonNull(world).getRecipeManager().getAllMatches(getOwnRecipeType(), getInputInventory(), world);
+        var candidates = getOwnRecipeType().getIndex(Objects.requireNonNull(world).getRecipeManager()).getAllMatches(getInputInventory(), world);
         // filter out recipes based on input tank
         var fluidRecipe = candidates.stream().filter(candidate -> CentrifugeBlockEntity.recipeMatchesTank(inputTank, candidate.value())).findAny();
         if (fluidRecipe.isPresent()) {
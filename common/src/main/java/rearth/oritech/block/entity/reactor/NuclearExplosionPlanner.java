@@ -0,0 +1,398 @@
+package rearth.oritech.block.entity.reactor;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.math.random.Random;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+import rearth.oritech.block.blocks.reactor.NuclearExplosionBlock;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Computes all block changes of a nuclear explosion, without touching the world. This is meant to run off the server
+ * thread: the blocks are read from copies of the chunk sections, which are all created on the server thread with
+ * {@link #loadSnapshots(long)} before planning starts, so planning never waits for the server thread.
+ * Changes made by earlier steps are kept in an overlay, so later steps see them just like they would in the world.
+ * <p>
+ * The result is a list of per-chunk change lists, in the order the changes need to be applied. Each step of the
+ * explosion (the initial sphere, and then one wave generation with its border blocks) is grouped by chunk.
+ */
+public class NuclearExplosionPlanner {
+    
+    // kinds of changes, stored in the lowest 2 bits of each entry
+    public static final int REMOVE = 0;     // the block is broken and replaced with air
+    public static final int REPLACE = 1;    // a border block is replaced
+    public static final int FIRE = 2;       // fire placed on top of a replaced border block
+    
+    private final ServerWorld world;
+    private final BlockPos pos;
+    private final int size;
+    private final Random random;
+    private volatile boolean cancelled;
+    
+    private final Long2ObjectOpenHashMap<ChunkSnapshot> snapshots = new Long2ObjectOpenHashMap<>();
+    private final LongArrayList missingSnapshots = new LongArrayList();
+    private final Long2ObjectOpenHashMap<BlockState> changedStates = new Long2ObjectOpenHashMap<>();
+    private final Set<BlockPos> removedBlocks = new HashSet<>();
+    private final Set<BlockPos> borderBlocks = new HashSet<>();
+    private final Set<DirectionExplosionWave> waves = new HashSet<>();
+    
+    private final List<ChunkChanges> plannedChanges = new ArrayList<>();
+    private final Long2ObjectLinkedOpenHashMap<ChunkChangesBuilder> stepChanges = new Long2ObjectLinkedOpenHashMap<>();
+    
+    public NuclearExplosionPlanner(ServerWorld world, BlockPos pos, int size, long seed) {
+        this.world = world;
+        this.pos = pos.toImmutable();
+        this.size = size;
+        this.random = Random.create(seed);
+        
+        // the waves move outwards by their shrinking radius each generation, and the extra edge blocks of the last
+        // generation are a few radii further out. Ray directions can be slightly longer than 1 due to the random offset
+        var reach = (int) Math.ceil(1.2 * (size * size / 2 + 4 * size)) + 10;
+        var center = new ChunkPos(pos);
+        var chunkReach = (reach >> 4) + 2;
+        for (var x = -chunkReach; x <= chunkReach; x++) {
+            for (var z = -chunkReach; z <= chunkReach; z++) {
+                if (x * x + z * z <= chunkReach * chunkReach)
+                    missingSnapshots.add(ChunkPos.toLong(center.x + x, center.z + z));
+            }
+        }
+    }
+    
+    /**
+     * Copies the chunks the explosion can reach. Has to be called on the server thread until it returns true, before
+     * {@link #plan()} is started.
+     *
+     * @param deadline the {@link System#nanoTime()} after which no further chunks are copied in this call
+     * @return true once all chunks are copied
+     */
+    public boolean loadSnapshots(long deadline) {
+        while (!missingSnapshots.isEmpty()) {
+            var chunkKey = missingSnapshots.removeLong(missingSnapshots.size() - 1);
+            snapshots.put(chunkKey, ChunkSnapshot.of(world.getChunk(ChunkPos.getPackedX(chunkKey), ChunkPos.getPackedZ(chunkKey))));
+            if (System.nanoTime() > deadline) break;
+        }
+        
+        return missingSnapshots.isEmpty();
+    }
+    
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Runs the same steps the explosion used to do tick by tick: the initial sphere, then the creation of the
+     * waves, and then one wave generation and border block pass per tick, until the explosion block was removed.
+     */
+    public List<ChunkChanges> plan() {
+        var initialRadius = size;
+        
+        explosionSphere(initialRadius + 7, 200, pos);
+        finishStep();
+        
+        createExplosionWaves(initialRadius);
+        
+        for (var age = 2; age <= initialRadius * 2 + 1; age++) {
+            if (cancelled) throw new CancellationException("explosion was removed");
+            waves.forEach(DirectionExplosionWave::nextGeneration);
+            processBorderBlocks(initialRadius * initialRadius);
+            finishStep();
+        }
+        
+        return plannedChanges;
+    }
+    
+    private void createExplosionWaves(int initialRadius) {
+        var rayCount = initialRadius / 2 + 3;
+        var directions = getRandomRayDirections(rayCount);
+        for (var direction : directions) {
+            var data = new DirectionExplosionWave(initialRadius, addRandomOffset(direction, 0.15f), pos.add(0, random.nextBetween(-initialRadius / 2, initialRadius / 2), 0).toImmutable());
+            waves.add(data);
+        }
+    }
+    
+    private void processBorderBlocks(int maxDist) {
+        
+        borderBlocks.forEach(target -> {
+            if (removedBlocks.contains(target)) return;
+            var distSq = target.getSquaredDistance(pos);
+            var targetBlock = getBlockState(target);
+            var percentageDist = distSq / (maxDist * maxDist) * 8;
+            var percentageVaried = percentageDist * (random.nextFloat() * 0.6 - 0.3 + 1);
+            
+            var replaced = false;
+            var replacementState = Blocks.AIR.getDefaultState();
+            
+            if (targetBlock.isIn(BlockTags.LOGS)) {
+                replaced = true;
+                replacementState = random.nextFloat() < 0.8 ? Blocks.BASALT.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                if (percentageVaried < 0.4f) replacementState = Blocks.AIR.getDefaultState();
+            } else if (targetBlock.isIn(BlockTags.LEAVES)) {
+                replaced = true;
+                replacementState = random.nextFloat() > 0.4 ? Blocks.MANGROVE_ROOTS.getDefaultState() : Blocks.AIR.getDefaultState();
+                if (percentageVaried < 0.6f) replacementState = Blocks.AIR.getDefaultState();
+            } else if (targetBlock.isIn(BlockTags.SAPLINGS) || targetBlock.isOf(Blocks.SHORT_GRASS)) {
+                replaced = true;
+                replacementState = random.nextFloat() > 0.4 ? Blocks.DEAD_BUSH.getDefaultState() : Blocks.AIR.getDefaultState();
+                if (percentageVaried < 0.5f) replacementState = Blocks.AIR.getDefaultState();
+            } else if (targetBlock.isOf(Blocks.GRASS_BLOCK)) {
+                replaced = true;
+                if (percentageVaried < 0.05) {
+                    replacementState = random.nextFloat() > 0.5 ? Blocks.TUFF.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else if (percentageVaried < 0.3) {
+                    replacementState = random.nextFloat() > 0.2 ? Blocks.TUFF.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else if (percentageVaried < 0.55) {
+                    replacementState = random.nextFloat() > 0.1 ? Blocks.COARSE_DIRT.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else {
+                    replacementState = Blocks.DIRT.getDefaultState();
+                }
+                
+                if (random.nextFloat() > 0.7) replaced = false;
+            } else if (targetBlock.isOf(Blocks.DIRT)) {
+                replaced = true;
+                if (percentageVaried < 0.15) {
+                    replacementState = random.nextFloat() > 0.6 ? Blocks.COARSE_DIRT.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else if (percentageVaried < 0.3) {
+                    replacementState = random.nextFloat() > 0.3 ? Blocks.TUFF.getDefaultState() : Blocks.COARSE_DIRT.getDefaultState();
+                } else if (percentageVaried < 0.65) {
+                    replacementState = random.nextFloat() > 0.2 ? Blocks.COARSE_DIRT.getDefaultState() : Blocks.TUFF.getDefaultState();
+                } else {
+                    replaced = false;
+                }
+                
+                if (random.nextFloat() > 0.1) replaced = false;
+            } else if (targetBlock.isIn(BlockTags.BASE_STONE_OVERWORLD)) {
+                replaced = true;
+                if (percentageVaried < 0.3) {
+                    replacementState = random.nextFloat() > 0.5 ? Blocks.DEEPSLATE.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else if (percentageVaried < 0.5) {
+                    replacementState = random.nextFloat() > 0.3 ? Blocks.STONE.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else if (percentageVaried < 0.7) {
+                    replacementState = random.nextFloat() > 0.2 ? Blocks.GRANITE.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else {
+                    replaced = false;
+                }
+            } else if (targetBlock.isIn(BlockTags.SAND) || targetBlock.isOf(Blocks.SANDSTONE)) {
+                replaced = true;
+                if (percentageVaried < 0.2) {
+                    replacementState = random.nextFloat() > 0.7 ? Blocks.SANDSTONE.getDefaultState() : Blocks.MAGMA_BLOCK.getDefaultState();
+                } else {
+                    replacementState = Blocks.GLASS.getDefaultState();
+                }
+                
+                if (percentageVaried > 0.8) replaced = false;
+            }
+            
+            if (replaced) {
+                setBlockState(target, replacementState, REPLACE);
+                
+                // random fire chance
+                if (getBlockState(target.up()).isReplaceable() && random.nextFloat() > 0.97) {
+                    setBlockState(target.up(), Blocks.FIRE.getDefaultState(), FIRE);
+                }
+            }
+        });
+        
+        borderBlocks.clear();
+    }
+    
+    private void collectExtraEdgeBlocks(BlockPos center) {
+        BlockPos.iterate(center.add(-8, -8, -8), center.add(8, 8, 8)).forEach(target -> {
+            if (removedBlocks.contains(target)) return;
+            var targetState = getBlockState(target);
+            if (targetState.isAir()) return;
+            borderBlocks.add(target.toImmutable());
+        });
+    }
+    
+    // remove all blocks in X radius below hardness 'power', return amount of hardness used in total
+    private int explosionSphere(int radius, int power, BlockPos pos) {
+        
+        var radiusSq = radius * radius;
+        var radiusSqExtra = (radius + 3) * (radius + 3);
+        var usedPower = 0;
+        var hardBusters = radius;
+        
+        for (var target : BlockPos.iterateOutwards(pos, radius + 2, radius + 2, radius + 2)) {
+            if (removedBlocks.contains(target)) continue;
+            var distSq = target.getSquaredDistance(pos);
+            
+            if (distSq > radiusSq) {
+                if (distSq <= (radiusSqExtra)) {
+                    // border block, was almost destroyed
+                    borderBlocks.add(target.toImmutable());
+                }
+                continue;
+            }
+            
+            // if less than half dist, 100%, then slowly ramp up to 0%
+            var removalPercentage = (distSq - radiusSq / 2f) / radiusSq;
+            if (random.nextFloat() < removalPercentage - 0.2) {
+                borderBlocks.add(target.toImmutable());
+                continue;
+            }
+            
+            var targetState = getBlockState(target);
+            var targetBlock = targetState.getBlock();
+            var targetHardness = targetBlock.getBlastResistance();
+            
+            if (targetBlock instanceof NuclearExplosionBlock || targetState.isAir() && !targetState.isLiquid()) continue;
+            
+            // skip too hard blocks (except for the first few)
+            if (targetHardness > power && hardBusters-- < 0) continue;
+            
+            usedPower += targetHardness;
+            
+            setBlockState(target, Blocks.AIR.getDefaultState(), REMOVE);
+            removedBlocks.add(target.toImmutable());
+            borderBlocks.remove(target.toImmutable());
+        
+        }
+        
+        return usedPower;
+    }
+    
+    private List<Vec3d> getRandomRayDirections(int count) {
+        List<Vec3d> rayDirections = new ArrayList<>(count);
+        
+        // Divide the circle into 12 equal parts
+        var angleIncrement = 2 * Math.PI / count; // 360 degrees / 12
+        
+        for (int i = 0; i < count; i++) {
+            // Calculate the base angle for this ray
+            var baseAngle = i * angleIncrement;
+            
+            // Add a small random perturbation to the angle
+            var randomPerturbation = (random.nextFloat() - 0.5) * (angleIncrement / 2);
+            
+            // Final angle with randomness
+            var angle = baseAngle + randomPerturbation;
+            
+            // Calculate the direction vector
+            var x = Math.cos(angle);
+            var z = Math.sin(angle);
+            
+            rayDirections.add(new Vec3d(x, 0, z)); // Horizontal direction
+        }
+        
+        return rayDirections;
+    }
+    
+    private Vec3d addRandomOffset(Vec3d direction, float amount) {
+        return direction.add(random.nextFloat() * amount - amount / 2, random.nextFloat() * amount - amount / 2, random.nextFloat() * amount - amount / 2);
+    }
+    
+    private BlockState getBlockState(BlockPos target) {
+        var changed = changedStates.get(target.asLong());
+        if (changed != null) return changed;
+        
+        var chunkKey = ChunkPos.toLong(target.getX() >> 4, target.getZ() >> 4);
+        var snapshot = snapshots.get(chunkKey);
+        if (snapshot == null) return Blocks.VOID_AIR.getDefaultState();
+        
+        return snapshot.getBlockState(target);
+    }
+    
+    private void setBlockState(BlockPos target, BlockState state, int kind) {
+        changedStates.put(target.asLong(), state);
+        
+        var chunkKey = ChunkPos.toLong(target.getX() >> 4, target.getZ() >> 4);
+        var changes = stepChanges.get(chunkKey);
+        if (changes == null) {
+            changes = new ChunkChangesBuilder();
+            stepChanges.put(chunkKey, changes);
+        }
+        
+        changes.positions.add(target.asLong());
+        changes.entries.add(Block.getRawIdFromState(state) << 2 | kind);
+    }
+    
+    private void finishStep() {
+        for (var entry : stepChanges.long2ObjectEntrySet()) {
+            var changes = entry.getValue();
+            plannedChanges.add(new ChunkChanges(entry.getLongKey(), changes.positions.toLongArray(), changes.entries.toIntArray()));
+        }
+        stepChanges.clear();
+    }
+    
+    /**
+     * All changes in one chunk for one step of the explosion, in the order they were made.
+     * Each entry contains the raw id of the new block state, shifted left by 2, and the kind of change.
+     */
+    public record ChunkChanges(long chunkPos, long[] positions, int[] entries) {
+    }
+    
+    private static class ChunkChangesBuilder {
+        private final LongArrayList positions = new LongArrayList();
+        private final IntArrayList entries = new IntArrayList();
+    }
+    
+    // copies of the block states of all sections in a chunk
+    private record ChunkSnapshot(int bottomSectionCoord, PalettedContainer<BlockState>[] sections) {
+        
+        @SuppressWarnings("unchecked")
+        private static ChunkSnapshot of(WorldChunk chunk) {
+            var sections = chunk.getSectionArray();
+            var copies = (PalettedContainer<BlockState>[]) new PalettedContainer[sections.length];
+            for (int i = 0; i < sections.length; i++)
+                copies[i] = sections[i].getBlockStateContainer().copy();
+            
+            return new ChunkSnapshot(chunk.getBottomSectionCoord(), copies);
+        }
+        
+        private BlockState getBlockState(BlockPos target) {
+            var sectionIndex = (target.getY() >> 4) - bottomSectionCoord;
+            if (sectionIndex < 0 || sectionIndex >= sections.length) return Blocks.VOID_AIR.getDefaultState();
+            return sections[sectionIndex].get(target.getX() & 15, target.getY() & 15, target.getZ() & 15);
+        }
+    }
+    
+    private class DirectionExplosionWave {
+        
+        private final Vec3d direction;
+        
+        private int lastRadius;
+        private BlockPos lastPosition;
+        private int lastRadiusReduction;
+        
+        private DirectionExplosionWave(int initialRadius, Vec3d direction, BlockPos pos) {
+            this.direction = direction;
+            this.lastRadius = initialRadius;
+            this.lastPosition = pos;
+            this.lastRadiusReduction = 1;
+        }
+        
+        private void nextGeneration() {
+            var currentRadius = lastRadius - lastRadiusReduction;
+            if (currentRadius <= 1) return;
+            var rayOffset = direction.multiply(currentRadius);
+            var target = lastPosition.add(BlockPos.ofFloored(rayOffset));
+            var power = currentRadius * 3;
+            lastRadius = currentRadius;
+            lastPosition = target;
+            
+            var usedPower = explosionSphere(currentRadius, power, target);
+            var expectedPower = currentRadius * currentRadius * currentRadius * 3;
+            if (usedPower > expectedPower) {
+                lastRadiusReduction = 2;
+            }
+            
+            var isLastGeneration = currentRadius - lastRadiusReduction <= 1;
+            if (isLastGeneration)
+                collectExtraEdgeBlocks(target.add(BlockPos.ofFloored(rayOffset.multiply(3))));
+        
+        }
+    }
+}
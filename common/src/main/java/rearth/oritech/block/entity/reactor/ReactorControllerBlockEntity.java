@@ -1,5 +1,8 @@
 package rearth.oritech.block.entity.reactor;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.fabricmc.fabric.api.screenhandler.v1.ExtendedScreenHandlerFactory;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -9,13 +12,21 @@ import net.minecraft.block.entity.BlockEntityTicker;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKey;
 import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.screen.ScreenHandler;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.state.property.Properties;
 import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.Pair;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec3i;
@@ -32,7 +43,9 @@ import rearth.oritech.init.BlockEntitiesContent;
 import rearth.oritech.init.SoundContent;
 import rearth.oritech.network.NetworkContent;
 import rearth.oritech.util.Geometry;
+import rearth.oritech.util.ScreenViewers;
 import rearth.oritech.util.energy.EnergyApi;
+import rearth.oritech.util.energy.EnergyOutputTargets;
 import rearth.oritech.util.energy.containers.SimpleEnergyStorage;
 
 import java.util.*;
@@ -47,13 +60,42 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
     public static final int MAX_HEAT = Oritech.CONFIG.maxHeat();
     public static final int MAX_UNSTABLE_TICKS = Oritech.CONFIG.maxUnstableTicks();
     
-    private final HashMap<Vector2i, BaseReactorBlock> activeComponents = new HashMap<>();   // 2d local position on the first layer containing the reactor blocks
-    private final HashMap<Vector2i, ReactorFuelPortEntity> fuelPorts = new HashMap<>();     // same grid, but contains a reference to the port at the ceiling
-    private final HashMap<Vector2i, ReactorAbsorberPortEntity> absorberPorts = new HashMap<>(); // same
-    private final HashMap<Vector2i, Integer> componentHeats = new HashMap<>();              // same grid, contains the current heat of the component
-    private final HashMap<Vector2i, ComponentStatistics> componentStats = new HashMap<>(); // mainly for client displays, same grid
-    private final HashSet<Pair<BlockPos, Direction>> energyPorts = new HashSet<>();   // list of all energy port outputs (e.g. the targets to output to)
-    private final HashSet<BlockPos> redstonePorts = new HashSet<>();   // list of all redstone ports
+    // bounds of the screen update interval in ticks, which adapts to how fast the component stats are changing
+    private static final int MIN_UI_SYNC_INTERVAL = 2;
+    private static final int MAX_UI_SYNC_INTERVAL = 20;
+    
+    // the interior is simulated on the first layer, all arrays below are indexed by x + z * gridWidth of the local position
+    private int gridWidth;
+    private BaseReactorBlock[] components = new BaseReactorBlock[0];                    // reactor blocks, null where there is none
+    private ReactorFuelPortEntity[] fuelPorts = new ReactorFuelPortEntity[0];          // reference to the port at the ceiling
+    private ReactorAbsorberPortEntity[] absorberPorts = new ReactorAbsorberPortEntity[0]; // same
+    private int[] componentHeats = new int[0];                                          // current heat of the component
+    private int[] neighbors = new int[0];                                               // up to 4 neighbor indices per position, at index * 4
+    private byte[] neighborCounts = new byte[0];
+    private int[] tickOrder = new int[0];                                               // indices of all components, in simulation order
+    
+    // statistics of the last tick, mainly for client displays
+    private boolean[] hasStats = new boolean[0];
+    private short[] statPulses = new short[0];
+    private int[] statHeats = new int[0];
+    private short[] statHeatChanges = new short[0];
+    private final HashMap<BlockPos, Pair<BlockPos, Direction>> energyPorts = new HashMap<>();   // all energy ports, with their output (e.g. the target to output to)
+    private final HashMap<BlockPos, BlockState> redstonePorts = new HashMap<>();   // all redstone ports, with their last known state (null if the port was removed)
+    private final HashSet<BlockPos> poweredRedstonePorts = new HashSet<>();
+    private final EnergyOutputTargets energyTargets = new EnergyOutputTargets();
+    private final LongOpenHashSet pendingStructureChanges = new LongOpenHashSet();
+    
+    // last screen state sent to the viewers, by grid index. Screen updates only contain the cells that changed since then
+    private int[] sentHeatCells = new int[0];   // received pulses, quantized heat and heat change, at index * 3
+    private int[] sentFuelCells = new int[0];   // capacity and remaining fuel, at index * 2
+    private boolean uiLayoutChanged = true;
+    private ReferenceOpenHashSet<ScreenHandler> uiSyncedHandlers = new ReferenceOpenHashSet<>();  // screens that received the current layout
+    private int uiSyncInterval = MIN_UI_SYNC_INTERVAL;
+    private long lastUISync;
+    
+    // all formed reactors, by the position of their controller. Used to forward block changes in the reactor area.
+    // Reactors stay registered while their controller is unloaded, so changes in that time can be noticed on load
+    private static final Map<RegistryKey<World>, Map<BlockPos, FormedReactor>> FORMED_REACTORS = new HashMap<>();
     
     public SimpleEnergyStorage energyStorage = new SimpleEnergyStorage(0, 1_000_000, 10_000_000, this::markDirty);
     public boolean active = false;
@@ -65,10 +107,13 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
     public long disabledUntil = 0;
     
     private boolean doAutoInit = false; // used to auto-init when save is being loaded
+    private BaseReactorBlock[] savedComponents;  // structure loaded from the save, restored on the first tick
+    private long[] savedEnergyPorts;
+    private long[] savedRedstonePorts;
     
     // client only
     public NetworkContent.ReactorUIDataPacket uiData;
-    public NetworkContent.ReactorUISyncPacket uiSyncData;
+    public ReactorUIState uiSyncData;
     
     public ReactorControllerBlockEntity(BlockPos pos, BlockState state) {
         super(BlockEntitiesContent.REACTOR_CONTROLLER_BLOCK_ENTITY, pos, state);
@@ -84,27 +129,35 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
     public void tick(World world, BlockPos pos, BlockState state, ReactorControllerBlockEntity blockEntity) {
         if (world.isClient) return;
         
-        if (!active && doAutoInit) {
+        if (!active && savedComponents != null) {
+            doAutoInit = false;
+            restoreSavedStructure();
+        } else if (!active && doAutoInit) {
             doAutoInit = false;
             init(null);
         }
         
+        if (active && !pendingStructureChanges.isEmpty())
+            applyStructureChanges();
+        
         
-        if (!active || activeComponents.isEmpty()) return;
+        if (!active || tickOrder.length == 0) return;
         
         var activeRods = 0;
         var hottestHeat = 0;
         
-        for (var localPos : activeComponents.keySet()) {
-            var component = activeComponents.get(localPos);
-            var componentHeat = componentHeats.get(localPos);
+        for (var index : tickOrder) {
+            var component = components[index];
+            var componentHeat = componentHeats[index];
+            var neighborStart = index * 4;
+            var neighborEnd = neighborStart + neighborCounts[index];
             
             if (component instanceof ReactorRodBlock rodBlock) {
                 
                 var ownRodCount = rodBlock.getRodCount();
                 var receivedPulses = rodBlock.getInternalPulseCount();
                 
-                var portEntity = fuelPorts.get(localPos);
+                var portEntity = fuelPorts[index];
                 if (portEntity == null || portEntity.isRemoved()) {
                     continue;
                 }
@@ -112,16 +165,16 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
                 var hasFuel = portEntity.tryConsumeFuel(ownRodCount * reactorStackHeight, isDisabled() || disabledViaRedstone);
                 var heatCreated = 0;
                 
-                setRodBlockState(localPos, hasFuel);
+                setRodBlockState(index, hasFuel);
                 
                 if (hasFuel) {
                     // check how many pulses are received from neighbors / reflectors
-                    for (var neighborPos : getNeighborsInBounds(localPos, activeComponents.keySet())) {
+                    for (int i = neighborStart; i < neighborEnd; i++) {
                         
-                        var neighbor = activeComponents.get(neighborPos);
+                        var neighbor = components[neighbors[i]];
                         if (neighbor instanceof ReactorRodBlock neighborRod) {
                             receivedPulses += neighborRod.getRodCount();
-                        } else if (neighbor instanceof ReactorReflectorBlock reflectorBlock) {
+                        } else if (neighbor instanceof ReactorReflectorBlock) {
                             receivedPulses += rodBlock.getRodCount();
                         }
                     }
@@ -143,30 +196,30 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
                     receivedPulses = 0;
                 }
                 
-                componentStats.put(localPos, new ComponentStatistics((short) receivedPulses, componentHeat, (short) heatCreated));
+                setStats(index, receivedPulses, componentHeat, heatCreated);
                 
-            } else if (component instanceof ReactorHeatPipeBlock heatPipeBlock) {
+            } else if (component instanceof ReactorHeatPipeBlock) {
                 
                 var sumGainedHeat = 0;
                 
                 // take heat in from neighbors
-                for (var neighbor : getNeighborsInBounds(localPos, activeComponents.keySet())) {
-                    var neighborHeat = componentHeats.get(neighbor);
+                for (int i = neighborStart; i < neighborEnd; i++) {
+                    var neighbor = neighbors[i];
+                    var neighborHeat = componentHeats[neighbor];
                     if (neighborHeat <= componentHeat) continue;
                     var diff = neighborHeat - componentHeat;
                     var gainedHeat = Math.min(diff / 8 + 6, diff);
-                    neighborHeat -= gainedHeat;
-                    componentHeats.put(neighbor, neighborHeat);
+                    componentHeats[neighbor] = neighborHeat - gainedHeat;
                     componentHeat += gainedHeat;
                     sumGainedHeat += gainedHeat;
                 }
                 
-                componentStats.put(localPos, new ComponentStatistics((short) 0, componentHeat, (short) sumGainedHeat));
+                setStats(index, 0, componentHeat, sumGainedHeat);
                 
-            } else if (component instanceof ReactorAbsorberBlock absorberBlock) {
+            } else if (component instanceof ReactorAbsorberBlock) {
                 
                 var sumRemovedHeat = 0;
-                var portEntity = absorberPorts.get(localPos);
+                var portEntity = absorberPorts[index];
                 if (portEntity == null || portEntity.isRemoved()) {
                     continue;
                 }
@@ -174,12 +227,11 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
                 
                 if (fuelAvailable >= reactorStackHeight) {
                     // take heat in from neighbors and remove it
-                    for (var neighbor : getNeighborsInBounds(localPos, activeComponents.keySet())) {
-                        var neighborHeat = componentHeats.get(neighbor);
-                        if (neighborHeat <= 0) continue;
-                        neighborHeat -= ABSORBER_RATE;
+                    for (int i = neighborStart; i < neighborEnd; i++) {
+                        var neighbor = neighbors[i];
+                        if (componentHeats[neighbor] <= 0) continue;
+                        componentHeats[neighbor] -= ABSORBER_RATE;
                         sumRemovedHeat += ABSORBER_RATE;
-                        componentHeats.put(neighbor, neighborHeat);
                     }
                 } else if (fuelAvailable > 0) {
                     // remove last small unusable part
@@ -190,33 +242,32 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
                     portEntity.consumeFuel(reactorStackHeight);
                 }
                 
-                componentStats.put(localPos, new ComponentStatistics((short) 0, 0, (short) sumRemovedHeat));
-            } else if (component instanceof ReactorHeatVentBlock ventBlock) {
+                setStats(index, 0, 0, sumRemovedHeat);
+            } else if (component instanceof ReactorHeatVentBlock) {
                 
                 // remove heat from hottest neighbor
                 
-                var hottestPos = localPos;
+                var hottest = index;
                 var max = 0;
-                for (var neighbor : getNeighborsInBounds(localPos, activeComponents.keySet())) {
-                    var neighborHeat = componentHeats.get(neighbor);
+                for (int i = neighborStart; i < neighborEnd; i++) {
+                    var neighbor = neighbors[i];
+                    var neighborHeat = componentHeats[neighbor];
                     if (neighborHeat <= max) continue;
-                    hottestPos = neighbor;
+                    hottest = neighbor;
                     max = neighborHeat;
                 }
                 
                 var removed = 0;
                 if (max != 0) {
-                    var neighborHeat = max;
-                    removed = Math.min(neighborHeat / VENT_RELATIVE_RATE + VENT_BASE_RATE, neighborHeat);
-                    neighborHeat -= removed;
-                    componentHeats.put(hottestPos, neighborHeat);
+                    removed = Math.min(max / VENT_RELATIVE_RATE + VENT_BASE_RATE, max);
+                    componentHeats[hottest] = max - removed;
                 }
                 
-                componentStats.put(localPos, new ComponentStatistics((short) 0, 0, (short) removed));
+                setStats(index, 0, 0, removed);
                 
             }
             
-            componentHeats.put(localPos, componentHeat);
+            componentHeats[index] = componentHeat;
             
             if (componentHeat > hottestHeat)
                 hottestHeat = componentHeat;
@@ -246,6 +297,13 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         
     }
     
+    private void setStats(int index, int receivedPulses, int storedHeat, int heatChanged) {
+        hasStats[index] = true;
+        statPulses[index] = (short) receivedPulses;
+        statHeats[index] = storedHeat;
+        statHeatChanges[index] = (short) heatChanged;
+    }
+    
     private boolean isDisabled() {
         return world.getTime() < disabledUntil;
     }
@@ -258,6 +316,19 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         nbt.putBoolean("was_active", active);
         nbt.putBoolean("redstone_disabled", disabledViaRedstone);
         
+        if (active) {
+            nbt.putLong("area_min", areaMin.asLong());
+            nbt.putLong("area_max", areaMax.asLong());
+            
+            var componentIds = new NbtList();
+            for (var component : components)
+                componentIds.add(NbtString.of(component == null ? "" : Registries.BLOCK.getId(component).toString()));
+            nbt.put("components", componentIds);
+            
+            nbt.putLongArray("energy_ports", energyPorts.keySet().stream().mapToLong(BlockPos::asLong).toArray());
+            nbt.putLongArray("redstone_ports", redstonePorts.keySet().stream().mapToLong(BlockPos::asLong).toArray());
+        }
+        
     }
     
     @Override
@@ -267,6 +338,22 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         energyStorage.setAmount(nbt.getLong("energy_stored"));
         doAutoInit = nbt.getBoolean("was_active");
         disabledViaRedstone = nbt.getBoolean("redstone_disabled");
+        
+        if (doAutoInit && nbt.contains("components")) {
+            areaMin = BlockPos.fromLong(nbt.getLong("area_min"));
+            areaMax = BlockPos.fromLong(nbt.getLong("area_max"));
+            
+            var componentIds = nbt.getList("components", NbtElement.STRING_TYPE);
+            savedComponents = new BaseReactorBlock[componentIds.size()];
+            for (int i = 0; i < componentIds.size(); i++) {
+                var id = componentIds.getString(i);
+                if (!id.isEmpty() && Registries.BLOCK.get(Identifier.of(id)) instanceof BaseReactorBlock reactorBlock)
+                    savedComponents[i] = reactorBlock;
+            }
+            
+            savedEnergyPorts = nbt.getLongArray("energy_ports");
+            savedRedstonePorts = nbt.getLongArray("redstone_ports");
+        }
     }
     
     private void playMeltdownAnimation(BlockPos port) {
@@ -313,6 +400,8 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
     public void init(@Nullable PlayerEntity player) {
         
         active = false;
+        unregister();
+        pendingStructureChanges.clear();
         
         // find low and high corners of reactor
         var cornerA = pos;
@@ -339,6 +428,8 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         // these get loaded in the next step
         energyPorts.clear();
         redstonePorts.clear();
+        poweredRedstonePorts.clear();
+        energyTargets.invalidate();
         
         // verify edges
         var wallsValid = BlockPos.stream(cornerA, cornerB).allMatch(pos -> {
@@ -350,13 +441,7 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
                 var block = state.getBlock();
                 
                 // load wall energy ports
-                if (block instanceof ReactorEnergyPortBlock) {
-                    var facing = state.get(Properties.FACING);
-                    var blockInFront = pos.add(Geometry.getForward(facing));
-                    energyPorts.add(new Pair<>(blockInFront, Direction.fromVector(Geometry.getBackward(facing).getX(), Geometry.getBackward(facing).getY(), Geometry.getBackward(facing).getZ())));
-                } else if (block instanceof ReactorRedstonePortBlock) {
-                    redstonePorts.add(pos.toImmutable());
-                }
+                loadWallPort(pos.toImmutable(), state);
                 
                 return !(block instanceof BaseReactorBlock reactorBlock) || reactorBlock.validForWalls();
             }
@@ -371,64 +456,267 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         }
         
         // verify interior is identical in all layers
-        var interiorHeight = cornerB.getY() - cornerA.getY() - 1;
-        var cornerAFlat = cornerA.add(1, 1, 1);
-        var cornerBFlat = new BlockPos(cornerB.getX() - 1, cornerA.getY() + 1, cornerB.getZ() - 1);
+        areaMin = finalCornerA;
+        areaMax = finalCornerB;
+        reactorStackHeight = cornerB.getY() - cornerA.getY() - 1;
+        resetGrid(cornerB.getX() - cornerA.getX() - 1, cornerB.getZ() - cornerA.getZ() - 1);
         
-        // these get loaded in the next step
-        fuelPorts.clear();
-        absorberPorts.clear();
-        reactorStackHeight = interiorHeight;
+        var interiorStackedRight = true;
+        for (int index = 0; index < components.length && interiorStackedRight; index++)
+            interiorStackedRight = loadColumn(index);
+        
+        if (!interiorStackedRight) {
+            if (player != null)
+                player.sendMessage(Text.translatable("message.oritech.reactor_interior_issues"));
+            return;
+        }
+        
+        updateSimulationOrder();
+        
+        active = true;
+        disabledViaRedstone = !poweredRedstonePorts.isEmpty();
+        register();
+        
+    }
+    
+    // rebuilds the structure from the save, without scanning the reactor area
+    private void restoreSavedStructure() {
+        
+        var saved = savedComponents;
+        savedComponents = null;
         
-        var interiorStackedRight = BlockPos.stream(cornerAFlat, cornerBFlat).allMatch(pos -> {
+        // blocks of this reactor were changed while the controller was unloaded
+        var registered = getRegistration();
+        if (registered != null && registered.changedWhileUnloaded) {
+            init(null);
+            return;
+        }
+        
+        reactorStackHeight = areaMax.getY() - areaMin.getY() - 1;
+        var width = areaMax.getX() - areaMin.getX() - 1;
+        var depth = areaMax.getZ() - areaMin.getZ() - 1;
+        if (saved.length != width * depth) {
+            init(null);
+            return;
+        }
+        
+        unregister();
+        resetGrid(width, depth);
+        for (int index = 0; index < saved.length; index++) {
+            if (!restoreColumn(index, saved[index])) {
+                init(null);
+                return;
+            }
+        }
+        
+        energyPorts.clear();
+        redstonePorts.clear();
+        poweredRedstonePorts.clear();
+        energyTargets.invalidate();
+        for (var port : savedEnergyPorts) {
+            var portPos = BlockPos.fromLong(port);
+            loadWallPort(portPos, world.getBlockState(portPos));
+        }
+        for (var port : savedRedstonePorts) {
+            var portPos = BlockPos.fromLong(port);
+            loadWallPort(portPos, world.getBlockState(portPos));
+        }
+        
+        updateSimulationOrder();
+        
+        active = true;
+        disabledViaRedstone = !poweredRedstonePorts.isEmpty();
+        register();
+    }
+    
+    private void loadWallPort(BlockPos portPos, BlockState state) {
+        var block = state.getBlock();
+        if (block instanceof ReactorEnergyPortBlock) {
+            var facing = state.get(Properties.FACING);
+            var blockInFront = portPos.add(Geometry.getForward(facing));
+            energyPorts.put(portPos, new Pair<>(blockInFront, Direction.fromVector(Geometry.getBackward(facing).getX(), Geometry.getBackward(facing).getY(), Geometry.getBackward(facing).getZ())));
+        } else if (block instanceof ReactorRedstonePortBlock) {
+            redstonePorts.put(portPos, state);
+            if (world.isReceivingRedstonePower(portPos))
+                poweredRedstonePorts.add(portPos);
+        }
+    }
+    
+    // restores one column from the save. Only the bottom and top layer and the ceiling port are checked, returns false if they don't match
+    private boolean restoreColumn(int index, @Nullable BaseReactorBlock saved) {
+        
+        var columnBase = areaMin.add(index % gridWidth + 1, 1, index / gridWidth + 1);
+        var bottomBlock = world.getBlockState(columnBase).getBlock();
+        if (saved == null) return !(bottomBlock instanceof BaseReactorBlock);
+        
+        if (!bottomBlock.equals(saved) || !world.getBlockState(columnBase.up(reactorStackHeight - 1)).getBlock().equals(saved))
+            return false;
+        
+        components[index] = saved;
+        return loadColumnPorts(index, saved);
+    }
+    
+    // allocates the arrays for a new interior size. Heats of positions that are part of both grids are kept
+    private void resetGrid(int width, int depth) {
+        
+        var size = width * depth;
+        var newHeats = new int[size];
+        var oldDepth = gridWidth == 0 ? 0 : components.length / gridWidth;
+        for (int x = 0; x < Math.min(width, gridWidth); x++) {
+            for (int z = 0; z < Math.min(depth, oldDepth); z++) {
+                newHeats[x + z * width] = componentHeats[x + z * gridWidth];
+            }
+        }
+        
+        gridWidth = width;
+        components = new BaseReactorBlock[size];
+        fuelPorts = new ReactorFuelPortEntity[size];
+        absorberPorts = new ReactorAbsorberPortEntity[size];
+        componentHeats = newHeats;
+        neighbors = new int[size * 4];
+        neighborCounts = new byte[size];
+        tickOrder = new int[0];
+        
+        hasStats = new boolean[size];
+        statPulses = new short[size];
+        statHeats = new int[size];
+        statHeatChanges = new short[size];
+    }
+    
+    // loads one column of the interior, which needs to contain the same block on all layers. Returns false if it doesn't
+    private boolean loadColumn(int index) {
+        
+        components[index] = null;
+        fuelPorts[index] = null;
+        absorberPorts[index] = null;
+        hasStats[index] = false;
+        
+        var columnBase = areaMin.add(index % gridWidth + 1, 1, index / gridWidth + 1);
+        var block = world.getBlockState(columnBase).getBlock();
+        if (!(block instanceof BaseReactorBlock reactorBlock)) return true;
+        
+        for (int i = 1; i < reactorStackHeight; i++) {
+            var candidate = world.getBlockState(columnBase.up(i));
+            if (!candidate.getBlock().equals(block))
+                return false;
+        }
+        
+        var requiredCeiling = reactorBlock.requiredStackCeiling();
+        if (requiredCeiling != Blocks.AIR) {
+            var ceilingBlock = world.getBlockState(columnBase.up(reactorStackHeight)).getBlock();
+            if (!requiredCeiling.equals(ceilingBlock)) return false;
+        }
+        
+        components[index] = reactorBlock;
+        return loadColumnPorts(index, reactorBlock);
+    }
+    
+    // returns false if the ceiling doesn't contain the port entity the component needs
+    private boolean loadColumnPorts(int index, BaseReactorBlock block) {
+        if (block.requiredStackCeiling() == Blocks.AIR) return true;
+        
+        var ceilingPos = areaMin.add(index % gridWidth + 1, reactorStackHeight + 1, index / gridWidth + 1);
+        var ceilingEntity = world.getBlockEntity(ceilingPos);
+        if (block instanceof ReactorRodBlock) {
+            if (!(ceilingEntity instanceof ReactorFuelPortEntity fuelPort)) return false;
+            fuelPorts[index] = fuelPort;
+        } else if (block instanceof ReactorAbsorberBlock) {
+            if (!(ceilingEntity instanceof ReactorAbsorberPortEntity absorberPort)) return false;
+            absorberPorts[index] = absorberPort;
+        }
+        
+        return true;
+    }
+    
+    // the simulation order and neighbor order affect the results, and are taken from the hash based sets that were used before.
+    // Components are added in the order the area was scanned before, so the iteration order is the same
+    private void updateSimulationOrder() {
+        
+        var componentPositions = new HashSet<Vector2i>();
+        for (int index = 0; index < components.length; index++) {
+            if (components[index] != null)
+                componentPositions.add(new Vector2i(index % gridWidth, index / gridWidth));
+        }
+        
+        var newTickOrder = new int[componentPositions.size()];
+        var i = 0;
+        for (var localPos : componentPositions) {
+            var index = localPos.x + localPos.y * gridWidth;
+            newTickOrder[i++] = index;
             
-            var offset = pos.subtract(cornerAFlat);
-            var localPos = new Vector2i(offset.getX(), offset.getZ());
+            var count = 0;
+            for (var neighbor : getNeighborsInBounds(localPos, componentPositions))
+                neighbors[index * 4 + count++] = neighbor.x + neighbor.y * gridWidth;
+            neighborCounts[index] = (byte) count;
+        }
+        
+        tickOrder = newTickOrder;
+        uiLayoutChanged = true;
+    }
+    
+    /**
+     * Re-validates the parts of the reactor that changed since the last tick. Changes to the edges can change the size
+     * of the reactor, which requires a full scan. Other wall changes only affect the ports, and changes of the interior
+     * or the ceiling one column.
+     */
+    private void applyStructureChanges() {
+        
+        var width = gridWidth;
+        var depth = components.length / gridWidth;
+        var columnsChanged = false;
+        
+        for (var changed : pendingStructureChanges) {
+            var changedPos = BlockPos.fromLong(changed);
             
-            var block = world.getBlockState(pos).getBlock();
-            if (!(block instanceof BaseReactorBlock reactorBlock)) return true;
+            if (isAtEdgeOfBox(changedPos, areaMin, areaMax)) {
+                init(null);
+                return;
+            }
             
-            for (int i = 1; i < interiorHeight; i++) {
-                var candidatePos = pos.add(0, i, 0);
-                var candidate = world.getBlockState(candidatePos);
-                if (!candidate.getBlock().equals(block))
-                    return false;
+            if (isOnWall(changedPos, areaMin, areaMax) && !updateWallBlock(changedPos)) {
+                deactivate();
+                return;
             }
             
-            var requiredCeiling = reactorBlock.requiredStackCeiling();
-            if (requiredCeiling != Blocks.AIR) {
-                var ceilingPos = pos.add(0, interiorHeight, 0);
-                var ceilingBlock = world.getBlockState(ceilingPos).getBlock();
-                if (!requiredCeiling.equals(ceilingBlock)) return false;
-                
-                if (block instanceof ReactorRodBlock) {
-                    fuelPorts.put(localPos, (ReactorFuelPortEntity) world.getBlockEntity(ceilingPos));
-                } else if (block instanceof ReactorAbsorberBlock) {
-                    absorberPorts.put(localPos, (ReactorAbsorberPortEntity) world.getBlockEntity(ceilingPos));
+            var localX = changedPos.getX() - areaMin.getX() - 1;
+            var localZ = changedPos.getZ() - areaMin.getZ() - 1;
+            if (changedPos.getY() > areaMin.getY() && localX >= 0 && localX < width && localZ >= 0 && localZ < depth) {
+                if (!loadColumn(localX + localZ * width)) {
+                    deactivate();
+                    return;
                 }
-                
+                columnsChanged = true;
             }
-            activeComponents.put(localPos, reactorBlock);
-            componentHeats.putIfAbsent(localPos, 0);
-            
-            return true;
-        });
-        
-        if (!interiorStackedRight) {
-            if (player != null)
-                player.sendMessage(Text.translatable("message.oritech.reactor_interior_issues"));
-            return;
         }
         
-        areaMin = finalCornerA;
-        areaMax = finalCornerB;
-        active = true;
+        pendingStructureChanges.clear();
+        if (columnsChanged) updateSimulationOrder();
+    }
+    
+    // reloads the port at a wall position. Returns false if the block there is not allowed in walls
+    private boolean updateWallBlock(BlockPos wallPos) {
+        
+        var state = world.getBlockState(wallPos);
+        energyPorts.remove(wallPos);
+        redstonePorts.remove(wallPos);
+        poweredRedstonePorts.remove(wallPos);
+        energyTargets.invalidate();
         
+        loadWallPort(wallPos, state);
+        disabledViaRedstone = !poweredRedstonePorts.isEmpty();
+        
+        return !(state.getBlock() instanceof BaseReactorBlock reactorBlock) || reactorBlock.validForWalls();
     }
     
-    private void setRodBlockState(Vector2i localPos, boolean on) {
+    private void deactivate() {
+        active = false;
+        pendingStructureChanges.clear();
+        unregister();
+    }
+    
+    private void setRodBlockState(int index, boolean on) {
         if (world.getTime() % 10 != 0) return;
-        var stackTop = fuelPorts.get(localPos).getPos();
+        var stackTop = fuelPorts[index].getPos();
         
         for (int i = 1; i <= reactorStackHeight; i++) {
             var candidatePos = stackTop.down(i);
@@ -442,6 +730,7 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         }
     }
     
+    // only used when building the grid, the neighbors are kept in the same order this set returns them
     private static Set<Vector2i> getNeighborsInBounds(Vector2i pos, Set<Vector2i> keys) {
         
         var res = new HashSet<Vector2i>(4);
@@ -497,13 +786,12 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
         
     }
     
+    // only the output level is updated here. Changes of the mode and the received power are pushed by the ports
     private void updateRedstonePorts(int hottestTemp, int filledRods) {
         
-        disabledViaRedstone = false;
-        
-        for (var pos : redstonePorts) {
-            var state = world.getBlockState(pos);
-            if (!state.getBlock().equals(BlockContent.REACTOR_REDSTONE_PORT)) continue;
+        for (var entry : redstonePorts.entrySet()) {
+            var state = entry.getValue();
+            if (state == null) continue;
             
             var resOutput = 0;
             
@@ -522,39 +810,123 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
             
             var lastLevel = state.get(Properties.POWER);
             if (lastLevel != resOutput) {
-                world.setBlockState(pos, state.with(Properties.POWER, resOutput));
+                var pos = entry.getKey();
+                var newState = state.with(Properties.POWER, resOutput);
+                entry.setValue(newState);
+                world.setBlockState(pos, newState);
                 world.markDirty(pos);
             }
             
-            if (world.isReceivingRedstonePower(pos)) {
-                disabledViaRedstone = true;
-            }
-            
         }
         
     }
     
-    private void outputEnergy() {
+    /**
+     * Called by the wall ports of this reactor when they or their neighbors change.
+     */
+    public void onPortUpdated(BlockPos portPos) {
+        
+        if (!redstonePorts.containsKey(portPos)) {
+            // the target in front of an energy port changed
+            if (energyPorts.containsKey(portPos))
+                energyTargets.invalidate();
+            return;
+        }
         
-        var totalMoved = 0;
-        var maxRatePerSlot = 10_000;
+        var state = world.getBlockState(portPos);
+        if (state.getBlock() instanceof ReactorRedstonePortBlock) {
+            redstonePorts.put(portPos, state);
+        } else {
+            redstonePorts.put(portPos, null);
+        }
         
-        var randomOrderedList = new ArrayList<>(energyPorts);
-        Collections.shuffle(randomOrderedList);
+        if (state.getBlock() instanceof ReactorRedstonePortBlock && world.isReceivingRedstonePower(portPos)) {
+            poweredRedstonePorts.add(portPos);
+        } else {
+            poweredRedstonePorts.remove(portPos);
+        }
         
-        for (var candidateData : randomOrderedList) {
-            var candidate = EnergyApi.BLOCK.find(world, candidateData.getLeft(), candidateData.getRight());
-            if (candidate == null) continue;
-            var moved = EnergyApi.transfer(energyStorage, candidate, maxRatePerSlot, false);
-            
-            if (moved > 0)
-                candidate.update();
+        disabledViaRedstone = !poweredRedstonePorts.isEmpty();
+    }
+    
+    public static void onPortChanged(World world, BlockPos portPos) {
+        for (var controller : findReactorsAt(world, portPos))
+            controller.onPortUpdated(portPos);
+    }
+    
+    /**
+     * Called when a reactor block is added or removed. The change is applied to the reactors containing the position on
+     * their next tick, when block entities of new blocks exist.
+     */
+    public static void onReactorBlockChanged(World world, BlockPos pos) {
+        for (var controller : findReactorsAt(world, pos))
+            controller.pendingStructureChanges.add(pos.asLong());
+    }
+    
+    private static List<ReactorControllerBlockEntity> findReactorsAt(World world, BlockPos pos) {
+        if (world.isClient) return List.of();
+        
+        var reactors = FORMED_REACTORS.get(world.getRegistryKey());
+        if (reactors == null) return List.of();
+        
+        var result = new ArrayList<ReactorControllerBlockEntity>(1);
+        for (var reactor : reactors.entrySet()) {
+            var controllerPos = reactor.getKey();
+            if (!reactor.getValue().area.contains(pos)) continue;
             
-            totalMoved += moved;
+            if (world.isChunkLoaded(controllerPos) && world.getBlockEntity(controllerPos) instanceof ReactorControllerBlockEntity controller && controller.active) {
+                result.add(controller);
+            } else {
+                // the controller is unloaded (or not restored yet), so it scans the whole reactor when it is loaded again
+                reactor.getValue().changedWhileUnloaded = true;
+            }
         }
         
-        if (totalMoved > 0)
-            energyStorage.update();
+        return result;
+    }
+    
+    private void register() {
+        FORMED_REACTORS.computeIfAbsent(world.getRegistryKey(), key -> new HashMap<>()).put(pos, new FormedReactor(BlockBox.create(areaMin, areaMax)));
+    }
+    
+    private void unregister() {
+        unregister(world, pos);
+    }
+    
+    @Nullable
+    private FormedReactor getRegistration() {
+        var reactors = FORMED_REACTORS.get(world.getRegistryKey());
+        return reactors == null ? null : reactors.get(pos);
+    }
+    
+    // called when the controller block is broken. Unloading the controller keeps the reactor registered
+    public static void unregister(World world, BlockPos controllerPos) {
+        if (world.isClient) return;
+        
+        var reactors = FORMED_REACTORS.get(world.getRegistryKey());
+        if (reactors != null)
+            reactors.remove(controllerPos);
+    }
+    
+    public static void onServerStopped() {
+        FORMED_REACTORS.clear();
+    }
+    
+    private static final class FormedReactor {
+        private final BlockBox area;
+        private boolean changedWhileUnloaded;
+        
+        private FormedReactor(BlockBox area) {
+            this.area = area;
+        }
+    }
+    
+    private void outputEnergy() {
+        
+        if (!energyTargets.isValid())
+            energyTargets.update((ServerWorld) world, energyPorts.values());
+        
+        energyTargets.outputEnergyShuffled(energyStorage, 10_000);
     }
     
     @Override
@@ -564,27 +936,128 @@ public class ReactorControllerBlockEntity extends BlockEntity implements BlockEn
     
     private void sendUINetworkData() {
         
-        if (!active || activeComponents.isEmpty() || !isActivelyViewed()) return;
+        if (!active || tickOrder.length == 0) return;
         
-        for (var port : fuelPorts.values()) port.updateNetwork();
-        for (var port : absorberPorts.values()) port.updateNetwork();
+        var viewers = ScreenViewers.getViewers(Objects.requireNonNull(world), pos);
+        if (viewers.isEmpty()) {
+            uiSyncedHandlers.clear();
+            return;
+        }
         
-        var positionsFlat = activeComponents.keySet();
-        var positions = positionsFlat.stream().map(pos -> areaMin.add(pos.x + 1, 1, pos.y + 1)).toList();
-        var heats = positionsFlat.stream().map(pos -> componentStats.getOrDefault(pos, ComponentStatistics.EMPTY)).toList();
+        if (uiLayoutChanged) {
+            uiLayoutChanged = false;
+            uiSyncedHandlers.clear();
+            sentHeatCells = new int[components.length * 3];
+            sentFuelCells = new int[components.length * 2];
+            Arrays.fill(sentHeatCells, Integer.MIN_VALUE);
+            Arrays.fill(sentFuelCells, Integer.MIN_VALUE);
+            lastUISync = world.getTime() - MAX_UI_SYNC_INTERVAL;
+        }
         
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.ReactorUISyncPacket(pos, positions, heats, energyStorage.getAmount()));
+        NetworkContent.ReactorUIDeltaPacket delta = null;
+        if (world.getTime() - lastUISync >= uiSyncInterval) {
+            lastUISync = world.getTime();
+            
+            var heatCells = new IntArrayList();
+            var fuelCells = new IntArrayList();
+            collectUIChanges(heatCells, fuelCells);
+            delta = new NetworkContent.ReactorUIDeltaPacket(pos, heatCells.toIntArray(), fuelCells.toIntArray(), energyStorage.getAmount());
+            
+            // sync faster while many components are changing, and slow down once the reactor has settled.
+            // Fuel is drained steadily by all active rods, so only heat changes are considered here
+            var changedComponents = heatCells.size() / ReactorUIState.HEAT_CELL_SIZE;
+            if (changedComponents * 4 > tickOrder.length) {
+                uiSyncInterval = Math.max(MIN_UI_SYNC_INTERVAL, uiSyncInterval / 2);
+            } else if (changedComponents == 0) {
+                uiSyncInterval = Math.min(MAX_UI_SYNC_INTERVAL, uiSyncInterval * 2);
+            }
+        }
+        
+        // new screens get the full state, all others only the changes (if any were collected this tick)
+        NetworkContent.ReactorUILayoutPacket layout = null;
+        var syncedHandlers = new ReferenceOpenHashSet<ScreenHandler>(viewers.size());
+        for (var player : viewers) {
+            var handler = player.currentScreenHandler;
+            syncedHandlers.add(handler);
+            
+            if (!uiSyncedHandlers.contains(handler)) {
+                if (layout == null) layout = createUILayout();
+                NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(layout);
+            } else if (delta != null) {
+                NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(delta);
+            }
+        }
+        uiSyncedHandlers = syncedHandlers;
+    }
+    
+    // compares the current stats with the last sent ones, and adds all cells that changed
+    private void collectUIChanges(IntArrayList heatCells, IntArrayList fuelCells) {
+        for (var index : tickOrder) {
+            var pulses = hasStats[index] ? statPulses[index] : 0;
+            var heat = ReactorUIState.quantizeHeat(hasStats[index] ? statHeats[index] : -1);
+            var heatChange = hasStats[index] ? statHeatChanges[index] : 0;
+            
+            var heatOffset = index * 3;
+            if (sentHeatCells[heatOffset] != pulses || sentHeatCells[heatOffset + 1] != heat || sentHeatCells[heatOffset + 2] != heatChange) {
+                sentHeatCells[heatOffset] = pulses;
+                sentHeatCells[heatOffset + 1] = heat;
+                sentHeatCells[heatOffset + 2] = heatChange;
+                heatCells.add(index);
+                heatCells.add(pulses);
+                heatCells.add(heat);
+                heatCells.add(heatChange);
+            }
+            
+            int capacity, remaining;
+            if (fuelPorts[index] != null) {
+                capacity = fuelPorts[index].currentFuelOriginalCapacity;
+                remaining = fuelPorts[index].availableFuel;
+            } else if (absorberPorts[index] != null) {
+                capacity = absorberPorts[index].currentFuelOriginalCapacity;
+                remaining = absorberPorts[index].availableFuel;
+            } else {
+                continue;
+            }
+            
+            var fuelOffset = index * 2;
+            if (sentFuelCells[fuelOffset] != capacity || sentFuelCells[fuelOffset + 1] != remaining) {
+                sentFuelCells[fuelOffset] = capacity;
+                sentFuelCells[fuelOffset + 1] = remaining;
+                fuelCells.add(index);
+                fuelCells.add(capacity);
+                fuelCells.add(remaining);
+            }
+        }
     }
     
-    private boolean isActivelyViewed() {
-        var closestPlayer = Objects.requireNonNull(world).getClosestPlayer(pos.getX(), pos.getY(), pos.getZ(), 5, false);
-        return closestPlayer != null && closestPlayer.currentScreenHandler instanceof ReactorScreenHandler handler && getPos().equals(handler.reactorEntity.pos);
+    // the full state as it was last sent, so that following delta updates apply to it
+    private NetworkContent.ReactorUILayoutPacket createUILayout() {
+        var heatCells = new IntArrayList(tickOrder.length * ReactorUIState.HEAT_CELL_SIZE);
+        var fuelCells = new IntArrayList();
+        for (var index : tickOrder) {
+            var heatOffset = index * 3;
+            if (sentHeatCells[heatOffset + 1] != Integer.MIN_VALUE) {
+                heatCells.add(index);
+                heatCells.add(sentHeatCells[heatOffset]);
+                heatCells.add(sentHeatCells[heatOffset + 1]);
+                heatCells.add(sentHeatCells[heatOffset + 2]);
+            }
+            
+            var fuelOffset = index * 2;
+            if (sentFuelCells[fuelOffset] != Integer.MIN_VALUE) {
+                fuelCells.add(index);
+                fuelCells.add(sentFuelCells[fuelOffset]);
+                fuelCells.add(sentFuelCells[fuelOffset + 1]);
+            }
+        }
+        
+        return new NetworkContent.ReactorUILayoutPacket(pos, areaMin, gridWidth, reactorStackHeight, tickOrder.clone(), heatCells.toIntArray(), fuelCells.toIntArray(), energyStorage.getAmount());
     }
     
     @Override
     public Object getScreenOpeningData(ServerPlayerEntity player) {
         var previewMax = new BlockPos(areaMax.getX(), areaMin.getY() + 1, areaMax.getZ());
-        NetworkContent.MACHINE_CHANNEL.serverHandle(this).send(new NetworkContent.ReactorUIDataPacket(pos, areaMin, areaMax, previewMax));
+        NetworkContent.MACHINE_CHANNEL.serverHandle(player).send(new NetworkContent.ReactorUIDataPacket(pos, areaMin, areaMax, previewMax));
         return new ModScreens.BasicData(pos);
     }
     
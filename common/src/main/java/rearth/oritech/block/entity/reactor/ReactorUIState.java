@@ -0,0 +1,91 @@
+package rearth.oritech.block.entity.reactor;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import rearth.oritech.network.NetworkContent;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Client side copy of the reactor state shown in the reactor screen. It is created from the layout packet sent when the
+ * screen is opened (or the reactor structure changed), and then kept up to date with delta packets.
+ * <p>
+ * Both packets use the same packed cell format. Heat cells are groups of 4 ints (grid index, received pulses,
+ * stored heat / {@link #HEAT_STEP}, heat change), fuel cells are groups of 3 ints (grid index, capacity, remaining fuel).
+ */
+public class ReactorUIState {
+    
+    public static final int HEAT_CELL_SIZE = 4;
+    public static final int FUEL_CELL_SIZE = 3;
+    public static final int HEAT_STEP = 5;
+    
+    private final BlockPos areaMin;
+    private final int gridWidth;
+    private final int stackHeight;
+    private final int[] components;
+    private final ReactorControllerBlockEntity.ComponentStatistics[] stats;
+    public long energy;
+    
+    public ReactorUIState(NetworkContent.ReactorUILayoutPacket layout) {
+        this.areaMin = layout.areaMin();
+        this.gridWidth = layout.gridWidth();
+        this.stackHeight = layout.stackHeight();
+        this.components = layout.components();
+        
+        var size = Arrays.stream(components).max().orElse(-1) + 1;
+        this.stats = new ReactorControllerBlockEntity.ComponentStatistics[size];
+        Arrays.fill(stats, ReactorControllerBlockEntity.ComponentStatistics.EMPTY);
+    }
+    
+    public void apply(World world, int[] heatCells, int[] fuelCells, long energy) {
+        this.energy = energy;
+        
+        for (int i = 0; i < heatCells.length; i += HEAT_CELL_SIZE) {
+            var index = heatCells[i];
+            if (index < 0 || index >= stats.length) continue;
+            stats[index] = new ReactorControllerBlockEntity.ComponentStatistics((short) heatCells[i + 1], dequantizeHeat(heatCells[i + 2]), (short) heatCells[i + 3]);
+        }
+        
+        for (int i = 0; i < fuelCells.length; i += FUEL_CELL_SIZE) {
+            var portPos = getPortPosition(fuelCells[i]);
+            var capacity = fuelCells[i + 1];
+            var remaining = fuelCells[i + 2];
+            
+            var entity = world.getBlockEntity(portPos);
+            if (entity instanceof ReactorFuelPortEntity port) {
+                port.currentFuelOriginalCapacity = capacity;
+                port.availableFuel = remaining;
+            } else if (entity instanceof ReactorAbsorberPortEntity port) {
+                port.currentFuelOriginalCapacity = capacity;
+                port.availableFuel = remaining;
+            }
+        }
+    }
+    
+    public ReactorControllerBlockEntity.ComponentStatistics getStats(BlockPos pos) {
+        var x = pos.getX() - areaMin.getX() - 1;
+        var z = pos.getZ() - areaMin.getZ() - 1;
+        if (x < 0 || z < 0 || x >= gridWidth) return ReactorControllerBlockEntity.ComponentStatistics.EMPTY;
+        
+        var index = x + z * gridWidth;
+        if (index >= stats.length) return ReactorControllerBlockEntity.ComponentStatistics.EMPTY;
+        return stats[index];
+    }
+    
+    public Stream<ReactorControllerBlockEntity.ComponentStatistics> streamComponentStats() {
+        return Arrays.stream(components).mapToObj(index -> stats[index]);
+    }
+    
+    private BlockPos getPortPosition(int index) {
+        return areaMin.add(index % gridWidth + 1, stackHeight + 1, index / gridWidth + 1);
+    }
+    
+    public static int quantizeHeat(int heat) {
+        return heat < 0 ? -1 : heat / HEAT_STEP;
+    }
+    
+    private static int dequantizeHeat(int quantized) {
+        return quantized < 0 ? -1 : quantized * HEAT_STEP;
+    }
+}
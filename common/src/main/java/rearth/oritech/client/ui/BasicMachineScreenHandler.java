@@ -20,6 +20,7 @@ import rearth.oritech.client.init.ModScreens;
 import rearth.oritech.util.energy.EnergyApi;
 import rearth.oritech.util.FluidProvider;
 import rearth.oritech.util.ScreenProvider;
+import rearth.oritech.util.ScreenViewers;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -94,6 +95,7 @@ public class BasicMachineScreenHandler extends ScreenHandler {
         }
         
         buildItemSlots();
+        ScreenViewers.onOpened(playerInventory.player, blockPos, this);
     }
     
     private void buildItemSlots() {
@@ -191,6 +193,12 @@ public class BasicMachineScreenHandler extends ScreenHandler {
         return this.inventory.canPlayerUse(player);
     }
     
+    @Override
+    public void onClosed(PlayerEntity player) {
+        super.onClosed(player);
+        ScreenViewers.onClosed(player, blockPos, this);
+    }
+    
     public @NotNull BlockPos getBlockPos() {
         return blockPos;
     }
@@ -195,14 +195,14 @@ public class ReactorScreen extends BaseOwoHandledScreen<FlowLayout, ReactorScree
         var stackHeight = handler.reactorEntity.uiData.max().getY() - handler.reactorEntity.uiData.min().getY() - 1;
         
         // gather stats
-        var sumProducedEnergy = handler.reactorEntity.uiSyncData.componentHeats().stream()
+        var sumProducedEnergy = handler.reactorEntity.uiSyncData.streamComponentStats()
                                   .mapToInt(data -> data.receivedPulses() * ReactorControllerBlockEntity.RF_PER_PULSE * stackHeight).sum();
         
-        var sumProducedHeat = handler.reactorEntity.uiSyncData.componentHeats().stream()
+        var sumProducedHeat = handler.reactorEntity.uiSyncData.streamComponentStats()
                                 .filter(elem -> elem.receivedPulses() > 0)
                                 .mapToInt(ReactorControllerBlockEntity.ComponentStatistics::heatChanged).sum();
         
-        var hottestComponent = handler.reactorEntity.uiSyncData.componentHeats().stream()
+        var hottestComponent = handler.reactorEntity.uiSyncData.streamComponentStats()
                                  .mapToInt(ReactorControllerBlockEntity.ComponentStatistics::storedHeat)
                                  .max().orElse(0);
         
@@ -332,15 +332,7 @@ public class ReactorScreen extends BaseOwoHandledScreen<FlowLayout, ReactorScree
     public ReactorControllerBlockEntity.ComponentStatistics getStatsAtPosition(BlockPos pos) {
         
         if (handler.reactorEntity.uiSyncData == null) return ReactorControllerBlockEntity.ComponentStatistics.EMPTY;
-        
-        var componentPositions = handler.reactorEntity.uiSyncData.componentPositions();
-        for (int i = 0; i < componentPositions.size(); i++) {
-            var candidate = componentPositions.get(i);
-            if (!candidate.equals(pos)) continue;
-            return handler.reactorEntity.uiSyncData.componentHeats().get(i);
-        }
-        
-        return ReactorControllerBlockEntity.ComponentStatistics.EMPTY;
+        return handler.reactorEntity.uiSyncData.getStats(pos);
     }
     
     private void addTitle(FlowLayout overlay) {
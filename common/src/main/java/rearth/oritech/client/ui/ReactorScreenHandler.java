@@ -9,6 +9,7 @@ import net.minecraft.screen.ScreenHandler;
 import net.minecraft.world.World;
 import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
 import rearth.oritech.client.init.ModScreens;
+import rearth.oritech.util.ScreenViewers;
 
 public class ReactorScreenHandler extends ScreenHandler {
     
@@ -26,6 +27,7 @@ public class ReactorScreenHandler extends ScreenHandler {
         
         reactorEntity = (ReactorControllerBlockEntity) blockEntity;
         world = blockEntity.getWorld();
+        ScreenViewers.onOpened(playerInventory.player, reactorEntity.getPos(), this);
     }
     
     @Override
@@ -36,6 +38,12 @@ public class ReactorScreenHandler extends ScreenHandler {
         return true;
     }
     
+    @Override
+    public void onClosed(PlayerEntity player) {
+        super.onClosed(player);
+        ScreenViewers.onClosed(player, reactorEntity.getPos(), this);
+    }
+    
     public static class HandlerFactory implements ExtendedScreenHandlerType.ExtendedFactory<ReactorScreenHandler, ModScreens.BasicData> {
         @Override
         public ReactorScreenHandler create(int syncId, PlayerInventory inventory, ModScreens.BasicData data) {
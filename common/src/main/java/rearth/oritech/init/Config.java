@@ -25,6 +25,7 @@ public class Config {
     public FertilizerConfig fertilizerConfig = new FertilizerConfig();
     @Nest
     public MachineFrameData placerConfig = new MachineFrameData(10, 5, 8, 64);
+    public boolean idleMachinesSleep = false;
     
     @SectionHeader("storageBlocks")
     @Nest
@@ -42,6 +43,7 @@ public class Config {
     public float fluidPipeInternalStorageBuckets = 2f;
     public long energyPipeTransferRate = 10_000;
     public long superConductorTransferRate = 4_194_304;
+    public boolean savePipeNetworks = true;
     
     @SectionHeader("equipment")
     @Nest
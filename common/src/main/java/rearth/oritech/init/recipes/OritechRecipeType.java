@@ -1,16 +1,33 @@
 package rearth.oritech.init.recipes;
 
 import io.wispforest.endec.Endec;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import io.wispforest.endec.StructEndec;
 import io.wispforest.endec.impl.StructEndecBuilder;
 import io.wispforest.owo.serialization.CodecUtils;
 import io.wispforest.owo.serialization.EndecRecipeSerializer;
 import io.wispforest.owo.serialization.endec.MinecraftEndecs;
 import net.minecraft.fluid.Fluid;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
 import net.minecraft.recipe.Ingredient;
+import net.minecraft.recipe.RecipeEntry;
+import net.minecraft.recipe.RecipeManager;
 import net.minecraft.recipe.RecipeType;
+import net.minecraft.recipe.input.RecipeInput;
 import net.minecraft.registry.Registries;
 import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
+import rearth.oritech.util.SimpleCraftingInventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
 
 public class OritechRecipeType extends EndecRecipeSerializer<OritechRecipe> implements RecipeType<OritechRecipe> {
     
@@ -33,6 +50,9 @@ public class OritechRecipeType extends EndecRecipeSerializer<OritechRecipe> impl
     
     private final Identifier identifier;
     
+    // one index per recipe manager, as the client and server managers share this type in singleplayer
+    private final Map<RecipeManager, RecipeIndex> indices = Collections.synchronizedMap(new WeakHashMap<>());
+    
     public Identifier getIdentifier() {
         return identifier;
     }
@@ -42,10 +62,188 @@ public class OritechRecipeType extends EndecRecipeSerializer<OritechRecipe> impl
         this.identifier = identifier;
     }
     
+    /**
+     * Returns the recipes of this type, grouped by the item of their first ingredient. Each recipe manager (e.g. after a
+     * reload) gets its own index, so it should not be kept around by callers.
+     *
+     * @param manager the current recipe manager
+     * @return the recipe index for this type
+     */
+    public RecipeIndex getIndex(RecipeManager manager) {
+        return indices.computeIfAbsent(manager, key -> new RecipeIndex(key.listAllOfType(this)));
+    }
+    
     @Override
     public String toString() {
         return "OritechRecipeType{" +
                  "identifier=" + identifier +
                  '}';
     }
+    
+    public static final class RecipeIndex {
+        
+        private final Reference2ObjectOpenHashMap<Item, List<RecipeEntry<OritechRecipe>>> recipesByItem = new Reference2ObjectOpenHashMap<>();
+        // recipes where the matching items of the first ingredient are unknown. These are candidates for any input
+        private final List<RecipeEntry<OritechRecipe>> unindexed = new ArrayList<>();
+        private final Reference2ObjectOpenHashMap<OritechRecipe, Identifier> ids = new Reference2ObjectOpenHashMap<>();
+        private final List<RecipeEntry<OritechRecipe>> recipes;
+        
+        // only built when needed, see getPairMatch
+        private volatile PairIndex pairIndex;
+        
+        private RecipeIndex(List<RecipeEntry<OritechRecipe>> recipes) {
+            this.recipes = recipes;
+            
+            // all lists keep the order of the recipe manager, so the first match is the same as without the index
+            for (var recipe : recipes) {
+                ids.put(recipe.value(), recipe.id());
+                for (var stack : getIndexedStacks(recipe.value()))
+                    recipesByItem.computeIfAbsent(stack.getItem(), item -> new ArrayList<>());
+            }
+            
+            for (var recipe : recipes) {
+                var stacks = getIndexedStacks(recipe.value());
+                if (stacks.length == 0) {
+                    unindexed.add(recipe);
+                    recipesByItem.values().forEach(list -> list.add(recipe));
+                    continue;
+                }
+                
+                for (var stack : stacks) {
+                    var list = recipesByItem.get(stack.getItem());
+                    if (list.isEmpty() || list.get(list.size() - 1) != recipe) list.add(recipe);
+                }
+            }
+        }
+        
+        private static ItemStack[] getIndexedStacks(OritechRecipe recipe) {
+            if (recipe.getInputs().isEmpty()) return new ItemStack[0];
+            return recipe.getInputs().get(0).getMatchingStacks();
+        }
+        
+        /**
+         * @param recipe a recipe of this type
+         * @return the id of the recipe, or null if it isn't a loaded recipe (e.g. the dummy recipe)
+         */
+        @Nullable
+        public Identifier getId(OritechRecipe recipe) {
+            return ids.get(recipe);
+        }
+        
+        /**
+         * @param firstInput the stack in the first input slot
+         * @return all recipes that could use this stack as first input, in recipe manager order. For an empty stack,
+         * these are the recipes without indexed ingredients (e.g. recipes without any ingredients)
+         */
+        public List<RecipeEntry<OritechRecipe>> getCandidates(ItemStack firstInput) {
+            return recipesByItem.getOrDefault(firstInput.getItem(), unindexed);
+        }
+        
+        public Optional<RecipeEntry<OritechRecipe>> getFirstMatch(RecipeInput input, World world) {
+            for (var candidate : getCandidates(getFirstInput(input))) {
+                if (candidate.value().matches(input, world)) return Optional.of(candidate);
+            }
+            
+            return Optional.empty();
+        }
+        
+        public List<RecipeEntry<OritechRecipe>> getAllMatches(RecipeInput input, World world) {
+            var result = new ArrayList<RecipeEntry<OritechRecipe>>();
+            for (var candidate : getCandidates(getFirstInput(input))) {
+                if (candidate.value().matches(input, world)) result.add(candidate);
+            }
+            
+            return result;
+        }
+        
+        // machines without input slots (e.g. the cooler) look up with an empty input
+        private static ItemStack getFirstInput(RecipeInput input) {
+            return input.getSize() == 0 ? ItemStack.EMPTY : input.getStackInSlot(0);
+        }
+        
+        /**
+         * Finds the recipe for two inputs in either order, with a single lookup for the pair of items. Recipes
+         * matching (first, second) are preferred over ones matching (second, first).
+         */
+        public Optional<RecipeEntry<OritechRecipe>> getPairMatch(ItemStack first, ItemStack second, World world) {
+            if (first.isEmpty() || second.isEmpty()) return Optional.empty();
+            
+            var pairs = pairIndex;
+            if (pairs == null) {
+                pairs = new PairIndex(recipes);
+                pairIndex = pairs;
+            }
+            
+            var firstId = Item.getRawId(first.getItem());
+            var secondId = Item.getRawId(second.getItem());
+            var pair = pairs.recipesByPair.get(getPairKey(firstId, secondId));
+            
+            var ordered = pairs.unpaired;
+            var swapped = pairs.unpaired;
+            if (pair != null) {
+                ordered = firstId <= secondId ? pair.ascending : pair.descending;
+                swapped = firstId <= secondId ? pair.descending : pair.ascending;
+            }
+            
+            // ingredients can also check components, so all recipes of the pair are checked in recipe manager order
+            var input = new SimpleCraftingInventory(first, second);
+            var match = findMatch(ordered, input, world);
+            if (match.isPresent()) return match;
+            
+            input.setStack(0, second);
+            input.setStack(1, first);
+            return findMatch(swapped, input, world);
+        }
+        
+        private static Optional<RecipeEntry<OritechRecipe>> findMatch(List<RecipeEntry<OritechRecipe>> candidates, SimpleCraftingInventory input, World world) {
+            for (var candidate : candidates) {
+                if (candidate.value().matches(input, world)) return Optional.of(candidate);
+            }
+            
+            return Optional.empty();
+        }
+        
+        private static long getPairKey(int a, int b) {
+            var low = Math.min(a, b);
+            var high = Math.max(a, b);
+            return (long) low << 32 | (high & 0xFFFFFFFFL);
+        }
+        
+        // recipes with two ingredients by the unordered pair of their input items. Only published once it is complete
+        private static final class PairIndex {
+            private final Long2ObjectOpenHashMap<RecipePair> recipesByPair = new Long2ObjectOpenHashMap<>();
+            private final List<RecipeEntry<OritechRecipe>> unpaired = new ArrayList<>();
+            
+            private PairIndex(List<RecipeEntry<OritechRecipe>> recipes) {
+                for (var recipe : recipes) {
+                    var inputs = recipe.value().getInputs();
+                    if (inputs.size() != 2 || inputs.get(0).getMatchingStacks().length == 0 || inputs.get(1).getMatchingStacks().length == 0) {
+                        unpaired.add(recipe);
+                        continue;
+                    }
+                    
+                    for (var firstStack : inputs.get(0).getMatchingStacks()) {
+                        for (var secondStack : inputs.get(1).getMatchingStacks()) {
+                            var firstId = Item.getRawId(firstStack.getItem());
+                            var secondId = Item.getRawId(secondStack.getItem());
+                            var pair = recipesByPair.computeIfAbsent(getPairKey(firstId, secondId), key -> new RecipePair());
+                            
+                            if (firstId <= secondId) addOnce(pair.ascending, recipe);
+                            if (firstId >= secondId) addOnce(pair.descending, recipe);
+                        }
+                    }
+                }
+            }
+            
+            private static void addOnce(List<RecipeEntry<OritechRecipe>> list, RecipeEntry<OritechRecipe> recipe) {
+                if (list.isEmpty() || list.get(list.size() - 1) != recipe) list.add(recipe);
+            }
+        }
+        
+        // the recipes for an item pair in recipe manager order, with the lower item id in the first or second slot
+        private static final class RecipePair {
+            private final List<RecipeEntry<OritechRecipe>> ascending = new ArrayList<>(1);
+            private final List<RecipeEntry<OritechRecipe>> descending = new ArrayList<>(1);
+        }
+    }
 }
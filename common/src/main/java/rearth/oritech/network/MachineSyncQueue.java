@@ -0,0 +1,37 @@
+package rearth.oritech.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the machine updates of a tick, and sends them as one packet per chunk at the end of the server tick.
+ * All players tracking a chunk receive the updates of all machines in it.
+ */
+public class MachineSyncQueue {
+
+    private static final Reference2ObjectOpenHashMap<ServerWorld, Long2ObjectOpenHashMap<List<NetworkContent.MachineSyncEntry>>> PENDING = new Reference2ObjectOpenHashMap<>();
+
+    public static void enqueue(ServerWorld world, NetworkContent.MachineSyncEntry entry) {
+        PENDING.computeIfAbsent(world, key -> new Long2ObjectOpenHashMap<>())
+          .computeIfAbsent(ChunkPos.toLong(entry.position()), key -> new ArrayList<>())
+          .add(entry);
+    }
+
+    public static void flush() {
+        if (PENDING.isEmpty()) return;
+
+        for (var worldEntry : PENDING.reference2ObjectEntrySet()) {
+            var world = worldEntry.getKey();
+            for (var entries : worldEntry.getValue().values()) {
+                NetworkContent.MACHINE_CHANNEL.serverHandle(world, entries.get(0).position()).send(new NetworkContent.MachineSyncPacket(entries));
+            }
+        }
+
+        PENDING.clear();
+    }
+}
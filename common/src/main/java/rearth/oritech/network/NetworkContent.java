@@ -1,7 +1,11 @@
 package rearth.oritech.network;
 
 import dev.architectury.fluid.FluidStack;
+import io.wispforest.endec.Endec;
+import io.wispforest.endec.StructEndec;
+import io.wispforest.endec.impl.StructEndecBuilder;
 import io.wispforest.owo.network.OwoNetChannel;
+import io.wispforest.owo.serialization.endec.MinecraftEndecs;
 import net.fabricmc.fabric.api.transfer.v1.fluid.FluidVariant;
 import net.minecraft.entity.EquipmentSlot;
 import net.minecraft.item.ItemStack;
@@ -29,6 +33,7 @@ import rearth.oritech.block.entity.processing.CentrifugeBlockEntity;
 import rearth.oritech.block.entity.reactor.ReactorAbsorberPortEntity;
 import rearth.oritech.block.entity.reactor.ReactorControllerBlockEntity;
 import rearth.oritech.block.entity.reactor.ReactorFuelPortEntity;
+import rearth.oritech.block.entity.reactor.ReactorUIState;
 import rearth.oritech.init.ComponentContent;
 import rearth.oritech.init.recipes.OritechRecipe;
 import rearth.oritech.init.recipes.OritechRecipeType;
@@ -39,6 +44,7 @@ import rearth.oritech.util.energy.containers.DynamicEnergyStorage;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class NetworkContent {
     
@@ -46,9 +52,52 @@ public class NetworkContent {
     public static final OwoNetChannel UI_CHANNEL = OwoNetChannel.create(Oritech.id("ui_interactions"));
     
     // Server -> Client
-    public record MachineSyncPacket(BlockPos position, long energy, long maxEnergy, long maxInsert, long maxExtract, int progress,
-                                    OritechRecipe activeRecipe, InventoryInputMode inputMode, long lastWorkedAt,
-                                    boolean disabledViaRedstone) {
+    // all machine updates of one chunk, see MachineSyncQueue
+    public record MachineSyncPacket(List<MachineSyncEntry> entries) {
+    }
+    
+    /**
+     * Contains only the fields of a machine that changed since the last update. Each set bit in fields has one entry
+     * in values, in the order of the field constants. The recipe is sent by id, an empty id means no recipe.
+     */
+    public record MachineSyncEntry(BlockPos position, int fields, long[] values, Optional<Identifier> recipe) {
+        public static final int ENERGY = 1;
+        public static final int MAX_ENERGY = 1 << 1;
+        public static final int MAX_INSERT = 1 << 2;
+        public static final int MAX_EXTRACT = 1 << 3;
+        public static final int PROGRESS = 1 << 4;
+        public static final int INPUT_MODE = 1 << 5;
+        public static final int LAST_WORKED_AT = 1 << 6;
+        public static final int REDSTONE = 1 << 7;
+        public static final int VALUE_COUNT = 8;
+        public static final int RECIPE = 1 << VALUE_COUNT;
+        
+        // values are written as var longs directly into the buffer, without boxing them into a list first
+        private static final Endec<long[]> VALUES_ENDEC = Endec.of(
+          (ctx, serializer, values) -> {
+              serializer.writeVarInt(ctx, values.length);
+              for (var value : values)
+                  serializer.writeVarLong(ctx, value);
+          },
+          (ctx, deserializer) -> {
+              var values = new long[deserializer.readVarInt(ctx)];
+              for (var i = 0; i < values.length; i++)
+                  values[i] = deserializer.readVarLong(ctx);
+              return values;
+          }
+        );
+        
+        public static final Endec<MachineSyncEntry> ENDEC = StructEndecBuilder.of(
+          MinecraftEndecs.BLOCK_POS.fieldOf("position", MachineSyncEntry::position),
+          Endec.VAR_INT.fieldOf("fields", MachineSyncEntry::fields),
+          VALUES_ENDEC.fieldOf("values", MachineSyncEntry::values),
+          MinecraftEndecs.IDENTIFIER.optionalOf().fieldOf("recipe", MachineSyncEntry::recipe),
+          MachineSyncEntry::new
+        );
+        
+        public boolean has(int field) {
+            return (fields & field) != 0;
+        }
     }
     
     // Client -> Server (e.g. from UI interactions
@@ -69,6 +118,8 @@ public class NetworkContent {
     
     public record AcceleratorParticleRenderPacket(BlockPos position, List<Vec3d> particleTrail) {}
     public record AcceleratorParticleInsertEventPacket(BlockPos position) {}
+    // the upcoming gates of a particle, see AcceleratorParticlePath
+    public record AcceleratorParticlePathPacket(BlockPos position, Vec3d start, List<BlockPos> gates, boolean loops, float speed) {}
     
     public record DroneCardEventPacket(BlockPos position, String message) {
     }
@@ -149,9 +200,49 @@ public class NetworkContent {
     public record ReactorPortDataPacket(BlockPos position, int capacity, int remaining) {
     }
     
-    public record ReactorUISyncPacket(BlockPos position, List<BlockPos> componentPositions, List<ReactorControllerBlockEntity.ComponentStatistics> componentHeats, long energy) {
+    // full reactor screen state, sent when a viewer opens the screen or the reactor structure changed. See ReactorUIState for the cell format
+    public record ReactorUILayoutPacket(BlockPos position, BlockPos areaMin, int gridWidth, int stackHeight, int[] components, int[] heatCells, int[] fuelCells, long energy) {
+        public static final StructEndec<ReactorUILayoutPacket> ENDEC = StructEndecBuilder.of(
+          MinecraftEndecs.BLOCK_POS.fieldOf("position", ReactorUILayoutPacket::position),
+          MinecraftEndecs.BLOCK_POS.fieldOf("areaMin", ReactorUILayoutPacket::areaMin),
+          Endec.VAR_INT.fieldOf("gridWidth", ReactorUILayoutPacket::gridWidth),
+          Endec.VAR_INT.fieldOf("stackHeight", ReactorUILayoutPacket::stackHeight),
+          PACKED_INTS.fieldOf("components", ReactorUILayoutPacket::components),
+          PACKED_INTS.fieldOf("heatCells", ReactorUILayoutPacket::heatCells),
+          PACKED_INTS.fieldOf("fuelCells", ReactorUILayoutPacket::fuelCells),
+          Endec.VAR_LONG.fieldOf("energy", ReactorUILayoutPacket::energy),
+          ReactorUILayoutPacket::new
+        );
+    }
+    
+    // only the cells that changed since the last reactor screen update
+    public record ReactorUIDeltaPacket(BlockPos position, int[] heatCells, int[] fuelCells, long energy) {
+        public static final StructEndec<ReactorUIDeltaPacket> ENDEC = StructEndecBuilder.of(
+          MinecraftEndecs.BLOCK_POS.fieldOf("position", ReactorUIDeltaPacket::position),
+          PACKED_INTS.fieldOf("heatCells", ReactorUIDeltaPacket::heatCells),
+          PACKED_INTS.fieldOf("fuelCells", ReactorUIDeltaPacket::fuelCells),
+          Endec.VAR_LONG.fieldOf("energy", ReactorUIDeltaPacket::energy),
+          ReactorUIDeltaPacket::new
+        );
     }
     
+    // reactor cell arrays are written as zigzag encoded var ints directly into the buffer, as most values are small and some (e.g. empty heat) are negative
+    private static final Endec<int[]> PACKED_INTS = Endec.of(
+      (ctx, serializer, array) -> {
+          serializer.writeVarInt(ctx, array.length);
+          for (var value : array)
+              serializer.writeVarInt(ctx, (value << 1) ^ (value >> 31));
+      },
+      (ctx, deserializer) -> {
+          var array = new int[deserializer.readVarInt(ctx)];
+          for (var i = 0; i < array.length; i++) {
+              var value = deserializer.readVarInt(ctx);
+              array[i] = (value >>> 1) ^ -(value & 1);
+          }
+          return array;
+      }
+    );
+    
     @SuppressWarnings("unchecked")
     public static void registerChannels() {
         
@@ -159,14 +250,17 @@ public class NetworkContent {
         
         MACHINE_CHANNEL.builder().register(ItemFilterBlockEntity.FILTER_ITEMS_ENDEC, (Class<Map<Integer, ItemStack>>) (Object) Map.class); // I don't even know what kind of abomination this cast is, but it seems to work
         MACHINE_CHANNEL.builder().register(OritechRecipeType.ORI_RECIPE_ENDEC, OritechRecipe.class);
+        MACHINE_CHANNEL.builder().register(MachineSyncEntry.ENDEC, MachineSyncEntry.class);
         
         
         MACHINE_CHANNEL.registerClientbound(MachineSyncPacket.class, ((message, access) -> {
             
-            var entity = access.player().clientWorld.getBlockEntity(message.position);
-            
-            if (entity instanceof MachineBlockEntity machine) {
-                machine.handleNetworkEntry(message);
+            for (var entry : message.entries) {
+                var entity = access.player().clientWorld.getBlockEntity(entry.position());
+                
+                if (entity instanceof MachineBlockEntity machine) {
+                    machine.handleNetworkEntry(entry);
+                }
             }
             
         }));
@@ -331,6 +425,16 @@ public class NetworkContent {
             
         }));
         
+        MACHINE_CHANNEL.registerClientbound(AcceleratorParticlePathPacket.class, ((message, access) -> {
+            
+            var entity = access.player().clientWorld.getBlockEntity(message.position);
+            
+            if (entity instanceof AcceleratorControllerBlockEntity acceleratorBlock) {
+                acceleratorBlock.onReceivePath(message);
+            }
+            
+        }));
+        
         MACHINE_CHANNEL.registerClientbound(AcceleratorControllerBlockEntity.LastEventPacket.class, ((message, access) -> {
             
             var entity = access.player().clientWorld.getBlockEntity(message.position());
@@ -518,12 +622,26 @@ public class NetworkContent {
             
         }));
         
-        MACHINE_CHANNEL.registerClientbound(ReactorUISyncPacket.class, ((message, access) -> {
+        MACHINE_CHANNEL.registerClientbound(ReactorUILayoutPacket.class, ReactorUILayoutPacket.ENDEC, ((message, access) -> {
             
-            var entity = access.player().getWorld().getBlockEntity(message.position);
+            var world = access.player().getWorld();
+            var entity = world.getBlockEntity(message.position);
             
             if (entity instanceof ReactorControllerBlockEntity reactor) {
-                reactor.uiSyncData = message;
+                reactor.uiSyncData = new ReactorUIState(message);
+                reactor.uiSyncData.apply(world, message.heatCells, message.fuelCells, message.energy);
+                reactor.energyStorage.setAmount(message.energy);
+            }
+            
+        }));
+        
+        MACHINE_CHANNEL.registerClientbound(ReactorUIDeltaPacket.class, ReactorUIDeltaPacket.ENDEC, ((message, access) -> {
+            
+            var world = access.player().getWorld();
+            var entity = world.getBlockEntity(message.position);
+            
+            if (entity instanceof ReactorControllerBlockEntity reactor && reactor.uiSyncData != null) {
+                reactor.uiSyncData.apply(world, message.heatCells, message.fuelCells, message.energy);
                 reactor.energyStorage.setAmount(message.energy);
             }
             
@@ -0,0 +1,84 @@
+package rearth.oritech.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectArrayMap;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the players that have the screen of a block open. Screen handlers register themselves on the server
+ * when they are created, and are removed when closed. Entries of players that switched to another screen are dropped
+ * on lookup, players that disconnect are removed right away.
+ */
+public class ScreenViewers {
+
+    private static final Map<RegistryKey<World>, Long2ObjectOpenHashMap<Reference2ObjectArrayMap<ServerPlayerEntity, ScreenHandler>>> VIEWERS = new HashMap<>();
+
+    public static void onOpened(PlayerEntity player, BlockPos pos, ScreenHandler handler) {
+        if (!(player instanceof ServerPlayerEntity serverPlayer)) return;
+
+        VIEWERS.computeIfAbsent(player.getWorld().getRegistryKey(), key -> new Long2ObjectOpenHashMap<>())
+          .computeIfAbsent(pos.asLong(), key -> new Reference2ObjectArrayMap<>(1))
+          .put(serverPlayer, handler);
+    }
+
+    public static void onClosed(PlayerEntity player, BlockPos pos, ScreenHandler handler) {
+        if (!(player instanceof ServerPlayerEntity)) return;
+
+        var positions = VIEWERS.get(player.getWorld().getRegistryKey());
+        if (positions == null) return;
+
+        var viewers = positions.get(pos.asLong());
+        if (viewers == null) return;
+
+        viewers.remove(player, handler);
+        if (viewers.isEmpty()) positions.remove(pos.asLong());
+    }
+
+    /**
+     * @param world the world of the block
+     * @param pos   the block position
+     * @return the players that currently have the screen of this block open
+     */
+    public static Collection<ServerPlayerEntity> getViewers(World world, BlockPos pos) {
+        var positions = VIEWERS.get(world.getRegistryKey());
+        if (positions == null) return List.of();
+
+        var viewers = positions.get(pos.asLong());
+        if (viewers == null) return List.of();
+
+        viewers.reference2ObjectEntrySet().removeIf(entry -> entry.getKey().isRemoved() || entry.getKey().currentScreenHandler != entry.getValue());
+        if (viewers.isEmpty()) {
+            positions.remove(pos.asLong());
+            return List.of();
+        }
+
+        return viewers.keySet();
+    }
+
+    public static boolean isViewed(World world, BlockPos pos) {
+        return !getViewers(world, pos).isEmpty();
+    }
+
+    public static void onDisconnected(ServerPlayerEntity player) {
+        for (var positions : VIEWERS.values()) {
+            positions.values().removeIf(viewers -> {
+                viewers.remove(player);
+                return viewers.isEmpty();
+            });
+        }
+    }
+
+    public static void onServerStopped() {
+        VIEWERS.clear();
+    }
+}
@@ -3,6 +3,7 @@ package rearth.oritech.util.energy;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
@@ -18,4 +19,11 @@ public interface BlockEnergyApi {
     
     EnergyApi.EnergyContainer find(World world, BlockPos pos, @Nullable Direction direction);
     
+    EnergyApi.BlockLookup createLookup(ServerWorld world, BlockPos pos);
+    
+    /**
+     * Insertions done with the returned batch are committed together when it is closed. Use with try-with-resources.
+     */
+    EnergyApi.TransferBatch openBatch();
+    
 }
@@ -2,6 +2,7 @@ package rearth.oritech.util.energy;
 
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.Direction;
+import org.jetbrains.annotations.Nullable;
 
 public class EnergyApi {
     
@@ -9,6 +10,24 @@ public class EnergyApi {
     public static ItemEnergyApi ITEM;
     
     public static Long transfer(EnergyContainer from, EnergyContainer to, long amount, boolean simulate) {
+        
+        // oritech containers can take back what the target didn't accept, so there is no need to simulate first
+        if (!simulate && from.supportsRefund()) {
+            var extracted = from.extract(amount, false);
+            if (extracted <= 0) return 0L;
+            
+            var inserted = to.insert(extracted, false);
+            if (inserted < extracted)
+                from.refund(extracted - inserted);
+            
+            if (inserted > 0) {
+                from.update();
+                to.update();
+            }
+            
+            return inserted;
+        }
+        
         var extracted = from.extract(amount, true);
         var inserted = to.insert(extracted, simulate);
         extracted = from.extract(inserted, simulate);
@@ -33,6 +52,32 @@ public class EnergyApi {
         
     }
     
+    /**
+     * Lookup of the energy storages at one position, created with {@link BlockEnergyApi#createLookup}. Keeps the
+     * found block entity and storage wrappers until the block at the position changes, so it should be kept by
+     * callers that query the same position repeatedly.
+     */
+    public interface BlockLookup {
+        
+        @Nullable
+        EnergyContainer find(@Nullable Direction direction);
+        
+    }
+    
+    /**
+     * A group of insertions that is committed at once when closed, instead of each insertion into storages of other
+     * mods committing on its own. Insertions join the batch by passing it to {@link EnergyContainer#insert(long, TransferBatch)}.
+     * Only affects platforms with transactional energy storages.
+     */
+    public interface TransferBatch extends AutoCloseable {
+        
+        TransferBatch NONE = () -> {};
+        
+        @Override
+        void close();
+        
+    }
+    
     public abstract static class EnergyContainer {
         
         public boolean supportsInsertion() {
@@ -41,12 +86,38 @@ public class EnergyApi {
         
         public abstract long insert(long maxAmount, boolean simulate);
         
+        /**
+         * Inserts as part of the given batch. Containers that are not transactional insert right away.
+         */
+        public long insert(long maxAmount, TransferBatch batch) {
+            return insert(maxAmount, false);
+        }
+        
         public boolean supportsExtraction() {
             return true;
         }
         
         public abstract long extract(long maxAmount, boolean simulate);
         
+        /**
+         * Whether {@link #refund(long)} always takes back the full amount. Allows {@link EnergyApi#transfer} to move
+         * energy in one pass instead of simulating the extraction first.
+         */
+        public boolean supportsRefund() {
+            return false;
+        }
+        
+        /**
+         * Returns energy that was just extracted from this container, but could not be inserted anywhere. Containers
+         * that support refunds ignore the insertion limit, as the energy never left the container from the outside view.
+         * By default, the energy is inserted back as far as possible.
+         *
+         * @return the amount that was taken back
+         */
+        public long refund(long amount) {
+            return insert(amount, false);
+        }
+        
         public abstract void setAmount(long amount);
         
         public abstract long getAmount();
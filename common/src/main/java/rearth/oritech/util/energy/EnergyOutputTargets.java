@@ -0,0 +1,78 @@
+package rearth.oritech.util.energy;
+
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Pair;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The energy storages a block outputs to, with one cached lookup per output face. The lookups are created once and
+ * kept until {@link #invalidate()} is called, which should happen on neighbor updates. If no storage was found on
+ * any face, outputting is skipped until the next invalidation.
+ */
+public class EnergyOutputTargets {
+    
+    private final List<Pair<EnergyApi.BlockLookup, Direction>> lookups = new ArrayList<>();
+    private boolean valid;
+    private boolean connected;
+    
+    public void invalidate() {
+        valid = false;
+    }
+    
+    public boolean isValid() {
+        return valid;
+    }
+    
+    /**
+     * @param targets the positions to output to, and the side of the target block facing this block
+     */
+    public void update(ServerWorld world, Collection<Pair<BlockPos, Direction>> targets) {
+        lookups.clear();
+        connected = false;
+        
+        for (var target : targets) {
+            var lookup = EnergyApi.BLOCK.createLookup(world, target.getLeft());
+            lookups.add(new Pair<>(lookup, target.getRight()));
+            
+            var candidate = lookup.find(target.getRight());
+            if (candidate != null && candidate.supportsInsertion())
+                connected = true;
+        }
+        
+        valid = true;
+    }
+    
+    public void outputEnergy(EnergyApi.EnergyContainer source) {
+        if (!connected) return;
+        
+        for (var target : lookups) {
+            if (source.getAmount() <= 0) return;
+            
+            var candidate = target.getLeft().find(target.getRight());
+            if (candidate != null)
+                EnergyApi.transfer(source, candidate, Long.MAX_VALUE, false);
+        }
+    }
+    
+    /**
+     * Moves at most maxPerTarget to each target. The targets are served in a random order, so none of them is preferred.
+     */
+    public void outputEnergyShuffled(EnergyApi.EnergyContainer source, long maxPerTarget) {
+        if (!connected) return;
+        
+        Collections.shuffle(lookups);
+        for (var target : lookups) {
+            if (source.getAmount() <= 0) return;
+            
+            var candidate = target.getLeft().find(target.getRight());
+            if (candidate != null)
+                EnergyApi.transfer(source, candidate, maxPerTarget, false);
+        }
+    }
+}
@@ -51,6 +51,16 @@ public class DelegatingEnergyStorage extends EnergyApi.EnergyContainer {
         return 0;
     }
     
+    @Override
+    public boolean supportsRefund() {
+        return validPredicate.getAsBoolean() && backingStorage.get().supportsRefund();
+    }
+    
+    @Override
+    public long refund(long amount) {
+        return backingStorage.get().refund(amount);
+    }
+    
     @Override
     public void setAmount(long amount) {
         if (validPredicate.getAsBoolean()) {
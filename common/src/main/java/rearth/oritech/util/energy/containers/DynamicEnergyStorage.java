@@ -43,6 +43,17 @@ public class DynamicEnergyStorage extends EnergyApi.EnergyContainer {
         return extracted;
     }
     
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+    
+    @Override
+    public long refund(long amount) {
+        this.amount += amount;
+        return amount;
+    }
+    
     @Override
     public void setAmount(long amount) {
         this.amount = amount;
@@ -1,5 +1,7 @@
 package rearth.oritech.fabric;
 
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.fabricmc.fabric.api.lookup.v1.block.BlockApiCache;
 import net.fabricmc.fabric.api.transfer.v1.context.ContainerItemContext;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
 import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
@@ -10,6 +12,7 @@ import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.component.ComponentType;
 import net.minecraft.item.ItemStack;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
@@ -19,13 +22,19 @@ import rearth.oritech.util.energy.EnergyApi;
 import rearth.oritech.util.energy.ItemEnergyApi;
 import team.reborn.energy.api.EnergyStorage;
 
+import java.util.Set;
 import java.util.function.Supplier;
 
 public class FabricEnergyApiImpl implements BlockEnergyApi, ItemEnergyApi {
     
+    // oritech block entities are queried directly, skipping the wrapper that is only needed by other mods
+    private final Set<BlockEntityType<?>> registeredBlockEntities = new ReferenceOpenHashSet<>();
+    
     @Override
     public void registerBlockEntity(Supplier<BlockEntityType<?>> typeSupplier) {
-        EnergyStorage.SIDED.registerForBlockEntity((entity, direction) -> ContainerStorageWrapper.of(((EnergyApi.BlockProvider) entity).getStorage(direction)), typeSupplier.get());
+        var type = typeSupplier.get();
+        registeredBlockEntities.add(type);
+        EnergyStorage.SIDED.registerForBlockEntity((entity, direction) -> ContainerStorageWrapper.of(((EnergyApi.BlockProvider) entity).getStorage(direction)), type);
     }
     
     @Override
@@ -48,6 +57,10 @@ public class FabricEnergyApiImpl implements BlockEnergyApi, ItemEnergyApi {
     
     @Override
     public EnergyApi.EnergyContainer find(World world, BlockPos pos, @Nullable BlockState state, @Nullable BlockEntity entity, @Nullable Direction direction) {
+        if (entity == null) entity = world.getBlockEntity(pos);
+        if (entity != null && registeredBlockEntities.contains(entity.getType()))
+            return ((EnergyApi.BlockProvider) entity).getStorage(direction);
+        
         var candidate = EnergyStorage.SIDED.find(world, pos, state, entity, direction);
         if (candidate == null) return null;
         if (candidate instanceof ContainerStorageWrapper wrapper) return wrapper.container;
@@ -59,6 +72,71 @@ public class FabricEnergyApiImpl implements BlockEnergyApi, ItemEnergyApi {
         return find(world, pos, null, null, direction);
     }
     
+    @Override
+    public EnergyApi.BlockLookup createLookup(ServerWorld world, BlockPos pos) {
+        return new CachedBlockLookup(BlockApiCache.create(EnergyStorage.SIDED, world, pos));
+    }
+    
+    @Override
+    public EnergyApi.TransferBatch openBatch() {
+        // batches can't be opened inside of other transactions
+        if (Transaction.isOpen()) return EnergyApi.TransferBatch.NONE;
+        return new TransactionBatch();
+    }
+    
+    // the transaction is only opened by the first insertion into a storage of another mod, so batches that only reach oritech containers never open one
+    private static class TransactionBatch implements EnergyApi.TransferBatch {
+        
+        @Nullable
+        private Transaction transaction;
+        
+        @Nullable
+        private Transaction getTransaction() {
+            if (transaction == null && !Transaction.isOpen())
+                transaction = Transaction.openOuter();
+            return transaction != null && Transaction.getCurrentUnsafe() == transaction ? transaction : null;
+        }
+        
+        @Override
+        public void close() {
+            if (transaction == null) return;
+            var outer = transaction;
+            transaction = null;
+            outer.commit();
+        }
+    }
+    
+    private class CachedBlockLookup implements EnergyApi.BlockLookup {
+        
+        private final BlockApiCache<EnergyStorage, Direction> cache;
+        
+        // last found storages of other mods and their wrappers, indexed by direction (null is the last index)
+        private final EnergyStorage[] foundStorages = new EnergyStorage[7];
+        private final FabricStorageWrapper[] wrappers = new FabricStorageWrapper[7];
+        
+        private CachedBlockLookup(BlockApiCache<EnergyStorage, Direction> cache) {
+            this.cache = cache;
+        }
+        
+        @Override
+        public EnergyApi.EnergyContainer find(@Nullable Direction direction) {
+            var entity = cache.getBlockEntity();
+            if (entity != null && registeredBlockEntities.contains(entity.getType()))
+                return ((EnergyApi.BlockProvider) entity).getStorage(direction);
+            
+            var candidate = cache.find(direction);
+            if (candidate == null) return null;
+            if (candidate instanceof ContainerStorageWrapper wrapper) return wrapper.container;
+            
+            var index = direction == null ? 6 : direction.ordinal();
+            if (foundStorages[index] != candidate) {
+                foundStorages[index] = candidate;
+                wrappers[index] = new FabricStorageWrapper(candidate);
+            }
+            return wrappers[index];
+        }
+    }
+    
     // this is used to interact with energy storages from other mods
     public static class FabricStorageWrapper extends EnergyApi.EnergyContainer {
         
@@ -78,6 +156,13 @@ public class FabricEnergyApiImpl implements BlockEnergyApi, ItemEnergyApi {
             }
         }
         
+        @Override
+        public long insert(long maxAmount, EnergyApi.TransferBatch batch) {
+            var transaction = batch instanceof TransactionBatch transactionBatch ? transactionBatch.getTransaction() : null;
+            if (transaction == null) return insert(maxAmount, false);
+            return storage.insert(maxAmount, transaction);
+        }
+        
         @Override
         public long extract(long maxAmount, boolean simulate) {
             try (var transaction = Transaction.openOuter()) {
@@ -6,9 +6,11 @@ import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.component.ComponentType;
 import net.minecraft.item.ItemStack;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
+import net.neoforged.neoforge.capabilities.BlockCapabilityCache;
 import net.neoforged.neoforge.capabilities.Capabilities;
 import net.neoforged.neoforge.capabilities.RegisterCapabilitiesEvent;
 import net.neoforged.neoforge.energy.IEnergyStorage;
@@ -73,6 +75,55 @@ public class NeoforgeEnergyApiImpl implements BlockEnergyApi, ItemEnergyApi {
         return find(world, pos, null, null, direction);
     }
     
+    @Override
+    public EnergyApi.BlockLookup createLookup(ServerWorld world, BlockPos pos) {
+        return new CachedBlockLookup(world, pos);
+    }
+    
+    @Override
+    public EnergyApi.TransferBatch openBatch() {
+        // neoforge energy storages are not transactional, every transfer is applied directly
+        return EnergyApi.TransferBatch.NONE;
+    }
+    
+    // capability caches are created per direction (null is the last index), as the direction is part of the cache context
+    private static class CachedBlockLookup implements EnergyApi.BlockLookup {
+        
+        private final ServerWorld world;
+        private final BlockPos pos;
+        @SuppressWarnings("unchecked")
+        private final BlockCapabilityCache<IEnergyStorage, Direction>[] caches = new BlockCapabilityCache[7];
+        
+        // last found storages of other mods and their wrappers
+        private final IEnergyStorage[] foundStorages = new IEnergyStorage[7];
+        private final NeoforgeStorageWrapper[] wrappers = new NeoforgeStorageWrapper[7];
+        
+        private CachedBlockLookup(ServerWorld world, BlockPos pos) {
+            this.world = world;
+            this.pos = pos.toImmutable();
+        }
+        
+        @Override
+        public EnergyApi.EnergyContainer find(@Nullable Direction direction) {
+            var index = direction == null ? 6 : direction.ordinal();
+            var cache = caches[index];
+            if (cache == null) {
+                cache = BlockCapabilityCache.create(Capabilities.EnergyStorage.BLOCK, world, pos, direction);
+                caches[index] = cache;
+            }
+            
+            var candidate = cache.getCapability();
+            if (candidate == null) return null;
+            if (candidate instanceof ContainerStorageWrapper wrapper) return wrapper.container;
+            
+            if (foundStorages[index] != candidate) {
+                foundStorages[index] = candidate;
+                wrappers[index] = new NeoforgeStorageWrapper(candidate);
+            }
+            return wrappers[index];
+        }
+    }
+    
     // this is used to interact with energy storages from other mods
     public static class NeoforgeStorageWrapper extends EnergyApi.EnergyContainer {
         